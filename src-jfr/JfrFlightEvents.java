@@ -0,0 +1,61 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    Records solves and dead ends as MazeSolveEvent and MazeRetraceEvent, for MazeMetrics to load when it is there.
+
+    This folder needs JDK 11 or newer, and is compiled on top of the classes built from src, for example:
+        javac -cp out/production/Maze -d out/production/Maze src-jfr/*.java
+ */
+public class JfrFlightEvents implements FlightEvents {
+    // the events of the solve and of the dead end that are in progress, if they are being recorded
+    private MazeSolveEvent solveEvent;
+    private MazeRetraceEvent retraceEvent;
+
+    @Override
+    public void solveStarted() {
+        solveEvent = new MazeSolveEvent();
+        solveEvent.begin();
+    }
+
+    @Override
+    public void solveFinished(int width, int height, long steps, long deadEnds, boolean complete) {
+        if (solveEvent == null) return;
+
+        solveEvent.end();
+
+        if (solveEvent.shouldCommit()) {
+            solveEvent.width = width;
+            solveEvent.height = height;
+            solveEvent.steps = steps;
+            solveEvent.deadEnds = deadEnds;
+            solveEvent.complete = complete;
+            solveEvent.commit();
+        }
+
+        solveEvent = null;
+    }
+
+    @Override
+    public void retraceStarted(int x, int y) {
+        retraceEvent = new MazeRetraceEvent();
+        retraceEvent.x = x;
+        retraceEvent.y = y;
+        retraceEvent.begin();
+    }
+
+    @Override
+    public void retraceFinished(long length) {
+        if (retraceEvent == null) return;
+
+        retraceEvent.end();
+
+        if (retraceEvent.shouldCommit()) {
+            retraceEvent.length = length;
+            retraceEvent.commit();
+        }
+
+        retraceEvent = null;
+    }
+}
@@ -0,0 +1,28 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+    A flight recorder event spanning the actor backing out of a single dead end.
+ */
+@Name("MazeGame.Retrace")
+@Label("Dead-End Retrace")
+@Category("Maze")
+@Description("The actor backing out of a dead end")
+public class MazeRetraceEvent extends Event {
+    @Label("Dead End X")
+    public int x;
+
+    @Label("Dead End Y")
+    public int y;
+
+    @Label("Length")
+    @Description("The number of moves spent backing out")
+    public long length;
+}
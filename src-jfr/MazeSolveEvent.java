@@ -0,0 +1,35 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+    A flight recorder event spanning a maze's solve, from the first step to the end being reached or the actor getting
+    stuck.
+ */
+@Name("MazeGame.Solve")
+@Label("Maze Solve")
+@Category("Maze")
+@Description("A maze solved from its first step to its last")
+public class MazeSolveEvent extends Event {
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Steps")
+    public long steps;
+
+    @Label("Dead Ends")
+    public long deadEnds;
+
+    @Label("Complete")
+    @Description("Whether the end was reached, rather than the actor getting stuck")
+    public boolean complete;
+}
@@ -0,0 +1,8 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    Two AI modes: default and retrace
+ */
+enum AIMode {DEFAULT, RETRACE}
@@ -0,0 +1,147 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A chronology of the actor's past positions, stored as a growable stack of two-bit directions packed into longs.
+    Pushing and popping never allocate once the stack has grown to fit the walk, and a million steps take 250KB.
+
+    Only the maze changes its history. Everything else sees it through readOnlyView(), which cannot be cast back.
+ */
+class ActorHistory implements HistoryView {
+    // the number of directions held by each long
+    private static final int DIRECTIONS_PER_WORD = 32;
+
+    // every direction, indexed by its two-bit code
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // the packed directions, 32 to a word, lowest bits first
+    private long[] words;
+
+    // the number of directions on the stack
+    private int size;
+
+    // the position that the oldest step was taken from
+    private int originX, originY;
+
+    public ActorHistory() {
+        words = new long[4];
+    }
+
+    // records a step taken from the given position in the given direction
+    public void push(int fromX, int fromY, Direction direction) {
+        if (size == 0) {
+            originX = fromX;
+            originY = fromY;
+        }
+
+        int word = size / DIRECTIONS_PER_WORD;
+        if (word == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+
+        int shift = (size % DIRECTIONS_PER_WORD) * 2;
+        words[word] = (words[word] & ~(3L << shift)) | ((long) direction.ordinal() << shift);
+        size++;
+    }
+
+    // removes the newest step and returns its direction
+    public Direction pop() {
+        Direction last = peek();
+        size--;
+
+        return last;
+    }
+
+    // returns the direction of the newest step without removing it
+    public Direction peek() {
+        if (size == 0) {
+            throw new IllegalStateException("history is empty");
+        }
+
+        return getDirection(size - 1);
+    }
+
+    // forgets every step
+    public void clear() { size = 0; }
+
+    // returns a copy of the packed directions, 32 to a word, lowest bits first
+    long[] copyWords() {
+        return Arrays.copyOf(words, (size + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD);
+    }
+
+    // replaces every step with the given packed directions, taken from the given origin
+    void restore(long[] packed, int size, int originX, int originY) {
+        int needed = (size + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD;
+        if (packed.length < needed) {
+            throw new IllegalArgumentException(size + " steps do not fit in " + packed.length + " words");
+        }
+
+        words = Arrays.copyOf(packed, Math.max(4, needed));
+        this.size = size;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public Direction getDirection(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " of history of size " + size);
+        }
+
+        int shift = (index % DIRECTIONS_PER_WORD) * 2;
+        return DIRECTIONS[(int) (words[index / DIRECTIONS_PER_WORD] >>> shift) & 3];
+    }
+
+    @Override
+    public int getOriginX() { return originX; }
+
+    @Override
+    public int getOriginY() { return originY; }
+
+    // returns a view of the history that cannot change it, and stays live as steps are pushed and popped
+    HistoryView readOnlyView() { return new ReadOnlyView(this); }
+
+    @Override
+    public void forEachPosition(PositionVisitor visitor) {
+        int x = originX, y = originY;
+
+        for (int i = 0; i < size; i++) {
+            visitor.visit(x, y);
+
+            Direction direction = getDirection(i);
+            x += direction.dx;
+            y += direction.dy;
+        }
+    }
+
+    private static final class ReadOnlyView implements HistoryView {
+        private final ActorHistory history;
+
+        private ReadOnlyView(ActorHistory history) {
+            this.history = history;
+        }
+
+        @Override
+        public int size() { return history.size(); }
+
+        @Override
+        public Direction getDirection(int index) { return history.getDirection(index); }
+
+        @Override
+        public int getOriginX() { return history.getOriginX(); }
+
+        @Override
+        public int getOriginY() { return history.getOriginY(); }
+
+        @Override
+        public void forEachPosition(PositionVisitor visitor) { history.forEachPosition(visitor); }
+    }
+}
@@ -0,0 +1,309 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    Runs any number of agents through the same maze at once, each following the right-hand rule on its own. The agents
+    only ever read the maze's topology, so they share it without copying it and without leaving trails, and each
+    agent is nothing more than a few entries in a handful of primitive arrays: a position, the way it faces, the steps
+    it has taken, and whether it is still walking.
+
+    An agent that starts on a loop, or somewhere with no way to the end, would follow the wall around forever. Each
+    agent keeps a mark, its cell and facing at the last step count that was a power of two, and since the way it goes
+    only depends on those, coming back to the mark means it is walking in circles. That catches every loop within a
+    few times as many steps as it takes to get around it once, for the cost of a comparison per step.
+
+    Agents never affect one another, so stepping splits the agents into ranges that run on a ForkJoinPool, each range
+    taking all of its agents' steps in one go. Every agent ends up exactly where it would have had they been stepped
+    one at a time, however the ranges are scheduled.
+
+    The open cells are kept one bit each with a border of walls around the maze, so that an agent at the edge never
+    has to check its bounds.
+ */
+public class AgentSimulation {
+    // the agents are stepped in ranges of this many
+    private static final int RANGE_SIZE = 1024;
+
+    // what an agent is doing
+    //  - WALKING = still looking for the end
+    //  - ARRIVED = reached the end, and stays there
+    //  - STUCK = walled in on every side, and cannot move at all
+    //  - LOOPING = going around a loop that it will never leave, so it cannot reach the end
+    public static final byte WALKING = 0;
+    public static final byte ARRIVED = 1;
+    public static final byte STUCK = 2;
+    public static final byte LOOPING = 3;
+
+    // the directions, indexed by ordinal, and each one's neighbours
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int[] DX = new int[4];
+    private static final int[] DY = new int[4];
+    private static final int[] RIGHT = new int[4];
+    private static final int[] LEFT = new int[4];
+    private static final int[] BACK = new int[4];
+
+    static {
+        for (Direction direction : DIRECTIONS) {
+            int i = direction.ordinal();
+            DX[i] = direction.dx;
+            DY[i] = direction.dy;
+            RIGHT[i] = direction.clockwise().ordinal();
+            LEFT[i] = direction.counterClockwise().ordinal();
+            BACK[i] = direction.opposite().ordinal();
+        }
+    }
+
+    // the maze the agents walk through
+    private final MazeTopology topology;
+    private final int width, height;
+    private final int endX, endY;
+
+    // one bit per cell, set while the cell is open, with a wall all the way around
+    private final long[] open;
+    private final int stride;
+
+    // the pool that the agents are stepped on
+    private final ForkJoinPool pool;
+
+    // the agents, one entry in each array apiece
+    private int count;
+    private int[] agentX = new int[16];
+    private int[] agentY = new int[16];
+    private byte[] agentFace = new byte[16];
+    private byte[] agentState = new byte[16];
+    private long[] agentSteps = new long[16];
+
+    // the cell and facing of each agent when its step count was last a power of two, packed by pack()
+    private long[] agentMark = new long[16];
+
+    // steps agents on the common pool
+    public AgentSimulation(MazeTopology topology) {
+        this(topology, ForkJoinPool.commonPool());
+    }
+
+    // steps agents on the given pool
+    public AgentSimulation(MazeTopology topology, ForkJoinPool pool) {
+        this.topology = topology;
+        this.pool = pool;
+
+        width = topology.getWidth();
+        height = topology.getHeight();
+        endX = topology.getEndX();
+        endY = topology.getEndY();
+
+        stride = width + 2;
+        open = new long[(int) (((long) stride * (height + 2) + 63) >>> 6)];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (topology.isOpen(x, y)) {
+                    long bit = (long) (y + 1) * stride + x + 1;
+                    open[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    // adds an agent at an open cell, facing the given way, and returns its index
+    public int addAgent(int x, int y, Direction face) {
+        if (!topology.isOpen(x, y)) {
+            throw new IllegalArgumentException("(" + x + ", " + y + ") is a wall");
+        }
+
+        if (count == agentX.length) {
+            int capacity = count * 2;
+            agentX = Arrays.copyOf(agentX, capacity);
+            agentY = Arrays.copyOf(agentY, capacity);
+            agentFace = Arrays.copyOf(agentFace, capacity);
+            agentState = Arrays.copyOf(agentState, capacity);
+            agentSteps = Arrays.copyOf(agentSteps, capacity);
+            agentMark = Arrays.copyOf(agentMark, capacity);
+        }
+
+        agentX[count] = x;
+        agentY[count] = y;
+        agentFace[count] = (byte) face.ordinal();
+        agentState[count] = x == endX && y == endY ? ARRIVED : WALKING;
+        agentSteps[count] = 0;
+        agentMark[count] = pack(x, y, face.ordinal());
+
+        return count++;
+    }
+
+    // adds agents at open cells picked at random, each facing a random way, which are the same for the same seed
+    public void addRandomAgents(int agents, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        for (int added = 0; added < agents; ) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+
+            if (topology.isOpen(x, y)) {
+                addAgent(x, y, DIRECTIONS[random.nextInt(4)]);
+                added++;
+            }
+        }
+    }
+
+    // takes a single step with every agent that is still walking
+    public void step() { step(1); }
+
+    // takes up to the given number of steps with every agent that is still walking
+    public void step(int steps) {
+        if (steps <= 0 || count == 0) return;
+
+        if (count <= RANGE_SIZE) {
+            stepRange(0, count, steps);
+        } else {
+            pool.invoke(new RangeTask(0, count, steps));
+        }
+    }
+
+    // walks a range of agents, keeping each one in locals for all of its steps
+    private void stepRange(int from, int to, int steps) {
+        for (int i = from; i < to; i++) {
+            if (agentState[i] != WALKING) continue;
+
+            int x = agentX[i];
+            int y = agentY[i];
+            int face = agentFace[i];
+            byte state = WALKING;
+
+            // the mark, and the step count at which it next moves up to where the agent is
+            long mark = agentMark[i];
+            int markX = (int) (mark >>> 2) % width, markY = (int) ((mark >>> 2) / width), markFace = (int) mark & 3;
+            long total = agentSteps[i];
+            long nextMark = total == 0 ? 1 : Long.highestOneBit(total) << 1;
+
+            int taken = 0;
+            while (taken < steps) {
+                // the right-hand rule: right if it can, then ahead, then left, and back only at a dead end
+                if (isOpen(x + DX[RIGHT[face]], y + DY[RIGHT[face]])) {
+                    face = RIGHT[face];
+                } else if (!isOpen(x + DX[face], y + DY[face])) {
+                    if (isOpen(x + DX[LEFT[face]], y + DY[LEFT[face]])) {
+                        face = LEFT[face];
+                    } else if (isOpen(x + DX[BACK[face]], y + DY[BACK[face]])) {
+                        face = BACK[face];
+                    } else {
+                        state = STUCK;
+                        break;
+                    }
+                }
+
+                x += DX[face];
+                y += DY[face];
+                taken++;
+                total++;
+
+                if (x == endX && y == endY) {
+                    state = ARRIVED;
+                    break;
+                }
+
+                // back where it was at the mark, facing the same way, so it will only ever go around again
+                if (x == markX && y == markY && face == markFace) {
+                    state = LOOPING;
+                    break;
+                }
+
+                if (total == nextMark) {
+                    markX = x;
+                    markY = y;
+                    markFace = face;
+                    nextMark <<= 1;
+                }
+            }
+
+            agentX[i] = x;
+            agentY[i] = y;
+            agentFace[i] = (byte) face;
+            agentState[i] = state;
+            agentSteps[i] += taken;
+            agentMark[i] = pack(markX, markY, markFace);
+        }
+    }
+
+    // packs a cell and a facing into a single long
+    private long pack(int x, int y, int face) {
+        return ((long) y * width + x) << 2 | face;
+    }
+
+    // returns if a cell is open, where anything just outside the maze is a wall
+    private boolean isOpen(int x, int y) {
+        long bit = (long) (y + 1) * stride + x + 1;
+        return (open[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    // returns the topology the agents walk through
+    public MazeTopology getTopology() { return topology; }
+
+    // returns the number of agents
+    public int getAgentCount() { return count; }
+
+    // returns where an agent is, the way it faces, what it is doing, and the steps it has taken
+    public int getX(int agent) { return agentX[check(agent)]; }
+    public int getY(int agent) { return agentY[check(agent)]; }
+    public Direction getFace(int agent) { return DIRECTIONS[agentFace[check(agent)]]; }
+    public byte getState(int agent) { return agentState[check(agent)]; }
+    public long getSteps(int agent) { return agentSteps[check(agent)]; }
+
+    // returns the number of agents that have reached the end
+    public int getArrivedCount() {
+        int arrived = 0;
+        for (int i = 0; i < count; i++) {
+            if (agentState[i] == ARRIVED) arrived++;
+        }
+
+        return arrived;
+    }
+
+    // returns if no agent is still walking
+    public boolean isDone() {
+        for (int i = 0; i < count; i++) {
+            if (agentState[i] == WALKING) return false;
+        }
+
+        return true;
+    }
+
+    private int check(int agent) {
+        if (agent < 0 || agent >= count) {
+            throw new IndexOutOfBoundsException("agent " + agent + " of " + count);
+        }
+
+        return agent;
+    }
+
+    // steps a range of agents, splitting it in half until it is small enough to step directly
+    private class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // the range of agents
+        private final int from, to;
+
+        // the number of steps each agent takes
+        private final int steps;
+
+        RangeTask(int from, int to, int steps) {
+            this.from = from;
+            this.to = to;
+            this.steps = steps;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RANGE_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, steps), new RangeTask(middle, to, steps));
+                return;
+            }
+
+            stepRange(from, to, steps);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A cell store backed by a two-dimensional int array, indexed as cells[y][x]. The array is used directly rather than
+    copied, so changes made through the store show up in the array that was passed in.
+ */
+public class ArrayCellStore implements CellStore {
+    // the rows of cells that make up the store
+    private final int[][] cells;
+
+    public ArrayCellStore(int[][] cells) {
+        this.cells = cells;
+    }
+
+    @Override
+    public int getWidth() { return cells[0].length; }
+
+    @Override
+    public int getHeight() { return cells.length; }
+
+    @Override
+    public int get(int x, int y) { return cells[y][x]; }
+
+    @Override
+    public void set(int x, int y, int cell) { cells[y][x] = cell; }
+}
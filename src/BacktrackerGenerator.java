@@ -0,0 +1,68 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+    The recursive backtracker: a random depth-first walk through the rooms that knocks down the wall into each room
+    it has not been to yet, and backs up once it is boxed in. The recursion is kept on an explicit stack of room
+    indices, so mazes of any size are fine. Its mazes have long, winding corridors and few dead-ends.
+ */
+public class BacktrackerGenerator implements MazeGenerator {
+    // the seed that every maze is generated from
+    private final long seed;
+
+    public BacktrackerGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void carve(CellStore store, int columns, int rows) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // the rooms that the walk came through, as row * columns + column
+        int[] stack = new int[64];
+        int size = 0;
+
+        // the directions out of the current room that lead to rooms that have not been visited
+        Direction[] options = new Direction[4];
+
+        store.set(1, 1, Maze.CELL_PATH);
+        stack[size++] = 0;
+
+        while (size > 0) {
+            int room = stack[size - 1];
+            int column = room % columns;
+            int row = room / columns;
+
+            int count = 0;
+            for (Direction direction : Direction.values()) {
+                int nextColumn = column + direction.dx;
+                int nextRow = row + direction.dy;
+
+                if (nextColumn >= 0 && nextColumn < columns && nextRow >= 0 && nextRow < rows
+                        && store.get(nextColumn * 2 + 1, nextRow * 2 + 1) == Maze.CELL_WALL) {
+                    options[count++] = direction;
+                }
+            }
+
+            if (count == 0) {
+                // boxed in, so back up a room
+                size--;
+                continue;
+            }
+
+            Direction direction = options[random.nextInt(count)];
+            store.set(column * 2 + 1 + direction.dx, row * 2 + 1 + direction.dy, Maze.CELL_PATH);
+            store.set(column * 2 + 1 + direction.dx * 2, row * 2 + 1 + direction.dy * 2, Maze.CELL_PATH);
+
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+
+            stack[size++] = room + direction.dy * columns + direction.dx;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    Solves a batch of maze files without a console or a window. Every maze is loaded and solved on its own by a pool
+    of worker threads, and a line of results is written for each one as it finishes, as CSV or as JSON lines. Once
+    the batch is done the totals and throughput are printed to standard error, keeping standard output for results.
+
+    usage: java BatchSolve [--threads n] [--format csv|json] [--analyze] [--cache mb] [--cache-dir dir]
+                           [--solver wall|junction|bfs|astar|fill|flow] [--out file] paths...
+    where each path is a maze file, or a directory that is searched for .maze files
+
+    With --analyze, each maze is analysed before it is solved, and one whose start and end are not connected is
+    rejected without being solved. The analysis is added to each maze's results: the open cells, regions, cells that
+    can be reached from the start, dead ends, junctions and loops.
+
+    With --cache, solutions are kept in a SolutionCache of the given number of megabytes, and a maze with the same
+    layout as one already solved is put straight into its solved state. With --cache-dir, solutions are also kept in
+    the given directory, so later batches find them too.
+ */
+public class BatchSolve {
+    // the number of steps taken between checks that the worker has not been interrupted
+    private static final int STEP_BATCH = 1 << 20;
+
+    // the megabytes of solutions kept in memory when only a cache directory is given
+    private static final long DEFAULT_CACHE_MB = 64;
+
+    // what is printed when the arguments do not make sense
+    private static final String USAGE = "usage: java BatchSolve [--threads n] [--format csv|json] [--analyze] "
+            + "[--cache mb] [--cache-dir dir] [--solver wall|junction|bfs|astar|fill|flow] [--out file] paths...";
+
+    // the ways a maze can turn out
+    //  - SOLVED = the actor reached the end
+    //  - NO_EXIT = the actor ran out of places to go
+    //  - REJECTED = the analysis found no way from the start to the end, so the maze was never solved
+    //  - ERROR = the maze could not be loaded or solved
+    private enum Outcome {SOLVED, NO_EXIT, REJECTED, ERROR}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        boolean analyze = false;
+        long cacheMb = -1;
+        Path cacheDir = null;
+        String solver = "wall";
+        Path outFile = null;
+        List<Path> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(valueOf(args, i++));
+                    break;
+
+                case "--format":
+                    String format = valueOf(args, i++);
+                    if (!format.equalsIgnoreCase("csv") && !format.equalsIgnoreCase("json")) {
+                        usage("unknown format " + format);
+                    }
+
+                    json = format.equalsIgnoreCase("json");
+                    break;
+
+                case "--analyze":
+                    analyze = true;
+                    break;
+
+                case "--cache":
+                    cacheMb = Long.parseLong(valueOf(args, i++));
+                    break;
+
+                case "--cache-dir":
+                    cacheDir = Paths.get(valueOf(args, i++));
+                    break;
+
+                case "--solver":
+                    solver = valueOf(args, i++);
+                    break;
+
+                case "--out":
+                    outFile = Paths.get(valueOf(args, i++));
+                    break;
+
+                default:
+                    paths.add(Paths.get(args[i]));
+            }
+        }
+
+        if (paths.isEmpty()) usage(null);
+
+        // fail on an unknown solver before any work is started
+        createSolver(solver);
+
+        SolutionCache cache = null;
+        if (cacheMb >= 0 || cacheDir != null) {
+            // the junction solver jumps between junctions without leaving a trail or a history to remember
+            if (solver.equalsIgnoreCase("junction")) {
+                System.err.println("the junction solver cannot be cached");
+                System.exit(2);
+            }
+
+            cache = new SolutionCache((cacheMb >= 0 ? cacheMb : DEFAULT_CACHE_MB) << 20, cacheDir);
+        }
+
+        List<Path> files = findMazeFiles(paths);
+
+        Writer out = outFile != null
+                ? Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "maze-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long solved = 0, rejected = 0, failed = 0, totalSteps = 0;
+
+        try {
+            CompletionService<Result> results = new ExecutorCompletionService<>(pool);
+            final String solverName = solver;
+            final boolean analyzeFirst = analyze;
+            final SolutionCache solutions = cache;
+            for (Path file : files) {
+                results.submit(() -> solve(file, solverName, analyzeFirst, solutions));
+            }
+
+            if (!json) {
+                out.write("file,width,height,outcome,steps,path_length,millis,error");
+                if (analyze) out.write(",open_cells,components,reachable,dead_ends,junctions,loops");
+                out.write('\n');
+            }
+
+            // write each result as soon as it is ready, from this thread only
+            for (int i = 0; i < files.size(); i++) {
+                Result result;
+                try {
+                    result = results.take().get();
+                } catch (ExecutionException ex) {
+                    // running out of memory, or any other error, is passed on as it is
+                    if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+                    throw new IllegalStateException("solver failed outside of a maze", ex.getCause());
+                }
+
+                out.write(json ? result.toJson(analyze) : result.toCsv(analyze));
+                out.write('\n');
+
+                totalSteps += result.steps;
+                if (result.outcome == Outcome.SOLVED) solved++;
+                if (result.outcome == Outcome.REJECTED) rejected++;
+                if (result.outcome == Outcome.ERROR) failed++;
+            }
+        } finally {
+            pool.shutdownNow();
+            out.flush();
+            if (outFile != null) out.close();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d mazes (%d solved, %d with no exit, %d rejected, %d failed) in %.3f s on %d threads%n",
+                files.size(), solved, files.size() - solved - rejected - failed, rejected, failed, seconds, threads);
+        System.err.printf("%.1f mazes/s, %.0f steps/s, %d steps%n",
+                files.size() / seconds, totalSteps / seconds, totalSteps);
+        if (cache != null) System.err.println("cache: " + cache);
+    }
+
+    // returns the value that follows the option at the given index, or exits with the usage if there is none
+    private static String valueOf(String[] args, int option) {
+        if (option + 1 >= args.length) usage(args[option] + " needs a value");
+
+        return args[option + 1];
+    }
+
+    // prints what went wrong, if anything, and the usage, then exits
+    private static void usage(String problem) {
+        if (problem != null) System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    // loads and solves a single maze, turning any failure into an ERROR result
+    //  - running out of memory is not caught, as nothing more can safely be done on the same heap
+    //  - if analyze is set, a maze that cannot be solved is REJECTED before the solver is started
+    //  - if there is a cache, a maze that has been solved before is restored without taking any steps
+    private static Result solve(Path file, String solver, boolean analyze, SolutionCache cache) {
+        long start = System.nanoTime();
+        Result result = new Result(file);
+
+        try {
+            Maze maze = MazeFile.load(file);
+
+            result.width = maze.getWidth();
+            result.height = maze.getHeight();
+
+            // analyse with the endpoints the maze was loaded with, which need not be the openings in its border
+            MazeAnalysis analysis = analyze ? new MazeAnalysis(maze.getCells(),
+                    maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY()) : null;
+            result.analysis = analysis;
+            if (analysis != null && !analysis.isSolvable()) {
+                result.outcome = Outcome.REJECTED;
+                result.error = analysis.getProblem();
+            } else {
+                MazeSolver mazeSolver = createSolver(solver);
+                maze.setSolver(mazeSolver);
+
+                if (cache == null || !cache.restore(maze)) {
+                    while (!maze.isFinished() && !Thread.currentThread().isInterrupted()) {
+                        result.steps += maze.stepN(STEP_BATCH).getSteps();
+                    }
+
+                    if (cache != null) cache.store(maze);
+                }
+
+                result.outcome = maze.isComplete() ? Outcome.SOLVED : Outcome.NO_EXIT;
+                // the junction solver jumps over corridors without keeping the actor's history
+                result.pathLength = mazeSolver instanceof JunctionSolver
+                        ? ((JunctionSolver) mazeSolver).getPathLength() : maze.getHistory().size();
+            }
+        } catch (IOException | RuntimeException ex) {
+            result.outcome = Outcome.ERROR;
+            result.error = ex.toString();
+        }
+
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // returns a fresh solver for the given name
+    private static MazeSolver createSolver(String name) {
+        switch (name.toLowerCase()) {
+            case "wall":
+                return new WallFollowerSolver();
+
+            case "junction":
+                return new JunctionSolver(false);
+
+            case "bfs":
+                return new BfsSolver();
+
+            case "astar":
+                return new AStarSolver();
+
+            case "fill":
+                return new DeadEndFillSolver();
+
+            case "flow":
+                return new FlowFieldSolver();
+
+            default:
+                throw new IllegalArgumentException("unknown solver " + name);
+        }
+    }
+
+    // expands directories into the .maze files inside of them, in a stable order
+    private static List<Path> findMazeFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    List<Path> found = walk
+                            .filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".maze"))
+                            .collect(Collectors.toList());
+                    Collections.sort(found);
+                    files.addAll(found);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        return files;
+    }
+
+    // the results of solving a single maze
+    private static class Result {
+        private final Path file;
+        private int width, height;
+        private Outcome outcome;
+        private long steps;
+        private long pathLength;
+        private long nanos;
+        private String error = "";
+
+        // the analysis of the maze, or null if it was not analysed
+        private MazeAnalysis analysis;
+
+        Result(Path file) {
+            this.file = file;
+        }
+
+        // returns the results as a line of CSV, with the analysis columns if analyzed is set
+        //  - the analysis columns are left empty for a maze that could not be analysed
+        String toCsv(boolean analyzed) {
+            String line = csv(file.toString()) + "," + width + "," + height + "," + outcome + "," + steps + ","
+                    + pathLength + "," + String.format(Locale.ROOT, "%.3f", nanos / 1e6) + "," + csv(error);
+            if (!analyzed) return line;
+
+            if (analysis == null) return line + ",,,,,,";
+
+            return line + "," + analysis.getOpenCells() + "," + analysis.getComponentCount() + ","
+                    + analysis.getReachableCells() + "," + analysis.getDeadEnds() + "," + analysis.getJunctions() + ","
+                    + analysis.getLoops();
+        }
+
+        // returns the results as a line of JSON, with an analysis object if analyzed is set and the maze was analysed
+        String toJson(boolean analyzed) {
+            return "{\"file\":" + json(file.toString()) + ",\"width\":" + width + ",\"height\":" + height
+                    + ",\"outcome\":\"" + outcome + "\",\"steps\":" + steps + ",\"pathLength\":" + pathLength
+                    + ",\"millis\":" + String.format(Locale.ROOT, "%.3f", nanos / 1e6)
+                    + (error.isEmpty() ? "" : ",\"error\":" + json(error))
+                    + (analyzed && analysis != null ? ",\"analysis\":" + analysisJson() : "") + "}";
+        }
+
+        private String analysisJson() {
+            return "{\"openCells\":" + analysis.getOpenCells() + ",\"components\":" + analysis.getComponentCount()
+                    + ",\"reachable\":" + analysis.getReachableCells() + ",\"deadEnds\":" + analysis.getDeadEnds()
+                    + ",\"junctions\":" + analysis.getJunctions() + ",\"loops\":" + analysis.getLoops() + "}";
+        }
+
+        // quotes a CSV field if it needs it
+        private static String csv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        // quotes and escapes a JSON string
+        private static String json(String value) {
+            StringBuilder quoted = new StringBuilder("\"");
+            for (char c : value.toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    quoted.append('\\').append(c);
+                } else if (c < 0x20) {
+                    quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+
+            return quoted.append('"').toString();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A breadth-first search, which finds a shortest route by expanding cells in order of their distance from the actor.
+ */
+public class BfsSolver extends GridSearchSolver {
+    // the cells waiting to be expanded
+    private final IntQueue open = new IntQueue();
+
+    @Override
+    protected boolean search(int start, int goal) {
+        open.clear();
+        open.add(start);
+        markVisited(start);
+
+        while (!open.isEmpty()) {
+            int cell = open.remove();
+            if (cell == goal) return true;
+
+            int x = cell % width;
+            int y = cell / width;
+
+            for (int d = 0; d < 4; d++) {
+                int nextX = x + DIRECTIONS[d].dx;
+                int nextY = y + DIRECTIONS[d].dy;
+                int next = nextY * width + nextX;
+
+                if (isOpen(nextX, nextY) && !isVisited(next)) {
+                    markVisited(next);
+                    setParent(next, d);
+                    open.add(next);
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The storage behind a maze's cells. Every cell holds one of the Maze.CELL_* values, so implementations are free
+    to pick whatever layout suits the size of the maze.
+ */
+public interface CellStore {
+    // returns the width and height of the store
+    int getWidth();
+    int getHeight();
+
+    // returns the cell at a given point
+    //  - throws ArrayIndexOutOfBoundsException if the point is outside of the store
+    int get(int x, int y);
+
+    // sets the cell at a given point
+    //  - throws ArrayIndexOutOfBoundsException if the point is outside of the store
+    void set(int x, int y, int cell);
+}
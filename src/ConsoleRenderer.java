@@ -0,0 +1,284 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+    Draws a maze to the console. Every frame is built up in a byte buffer and handed to the stream in one write,
+    rather than printed a cell at a time.
+
+    In DELTA mode the first frame clears the screen and is drawn in full, and every frame after that only redraws the
+    cells whose glyph has changed, using ANSI escape codes to move the cursor to each one. The cursor is left on the
+    line beneath the maze with everything below it cleared, so any text printed between frames is overwritten by the
+    next one rather than scrolling the maze away.
+
+    A renderer that is tracking a maze's changes hears about every cell the maze marks, and its DELTA frames only look
+    at those cells and at where the actor was and is, instead of comparing every cell in the maze with the last frame.
+ */
+public class ConsoleRenderer implements StepListener {
+    // the ways that frames can be drawn
+    //  - FULL = every frame prints the whole maze
+    //  - DELTA = every frame after the first only redraws the cells that changed
+    public enum Mode {FULL, DELTA}
+
+    // the glyphs for the actor and for each cell type, indexed by cell type
+    private static final byte ACTOR = '@';
+    private static final byte[] GLYPHS = {'#', ' ', '~', ' '};
+
+    // the escape sequences used by DELTA mode
+    private static final byte[] CLEAR_SCREEN = "\033[2J\033[H".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLEAR_BELOW = "\033[J".getBytes(StandardCharsets.US_ASCII);
+
+    // the line separator, as println() would print it
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    // the stream to draw to, or null to draw to whatever System.out is at the time
+    private final PrintStream out;
+
+    // the way frames are drawn
+    private Mode mode;
+
+    // the glyph of every cell in the last frame drawn in DELTA mode, or null if there has not been one
+    private byte[] lastFrame;
+    private int lastWidth, lastHeight;
+
+    // the maze whose changes are being tracked, or null if DELTA frames have to compare every cell
+    private Maze tracked;
+
+    // the cells that have changed since the last frame, as x and y pairs, and whether there were too many to list
+    private int[] dirtyCells = new int[64];
+    private int dirtyCount;
+    private boolean dirtyOverflow;
+
+    // where the actor was drawn in the last frame
+    private int lastActorX, lastActorY;
+
+    // the frame being built
+    private byte[] buffer = new byte[1024];
+    private int length;
+
+    // draws to System.out
+    public ConsoleRenderer(Mode mode) {
+        this(null, mode);
+    }
+
+    // draws to the given stream
+    public ConsoleRenderer(PrintStream out, Mode mode) {
+        this.out = out;
+        this.mode = mode;
+    }
+
+    // draws the current state of the maze
+    public void render(Maze maze) {
+        length = 0;
+
+        if (mode == Mode.FULL) {
+            renderFull(maze);
+        } else if (lastFrame == null || lastWidth != maze.getWidth() || lastHeight != maze.getHeight()) {
+            put(CLEAR_SCREEN);
+            renderFull(maze);
+            put(CLEAR_BELOW);
+        } else if (maze == tracked && !dirtyOverflow) {
+            renderDirty(maze);
+        } else {
+            renderDelta(maze);
+        }
+
+        dirtyCount = 0;
+        dirtyOverflow = false;
+        lastActorX = maze.getActorX();
+        lastActorY = maze.getActorY();
+
+        PrintStream stream = out != null ? out : System.out;
+        stream.write(buffer, 0, length);
+        stream.flush();
+    }
+
+    // returns the way frames are drawn
+    public Mode getMode() { return mode; }
+
+    // sets the way frames are drawn, starting DELTA mode off with a full frame
+    public void setMode(Mode mode) {
+        this.mode = mode;
+        lastFrame = null;
+    }
+
+    // forgets the last frame, so that the next DELTA frame is drawn in full
+    public void invalidate() { lastFrame = null; }
+
+    // listens to the maze's changes so that DELTA frames of it only redraw the cells that changed, stopping listening
+    // to whichever maze was tracked before; null stops tracking altogether
+    public void trackChanges(Maze maze) {
+        if (tracked != null) tracked.removeStepListener(this);
+
+        tracked = maze;
+        dirtyCount = 0;
+        dirtyOverflow = false;
+        lastFrame = null;
+
+        if (maze != null) maze.addStepListener(this);
+    }
+
+    @Override
+    public void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) {
+        if (dirtyOverflow) return;
+
+        // past an eighth of the maze it is cheaper to compare every cell than to keep a list
+        if (dirtyCount >= ((long) maze.getWidth() * maze.getHeight()) / 8) {
+            dirtyOverflow = true;
+            return;
+        }
+
+        if (dirtyCount * 2 == dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCells.length * 2);
+        }
+
+        dirtyCells[dirtyCount * 2] = x;
+        dirtyCells[dirtyCount * 2 + 1] = y;
+        dirtyCount++;
+    }
+
+    // builds a frame of the whole maze, remembering its glyphs if in DELTA mode
+    private void renderFull(Maze maze) {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+
+        if (mode == Mode.DELTA) {
+            lastWidth = width;
+            lastHeight = height;
+
+            long cells = (long) width * height;
+            if (lastFrame == null || lastFrame.length != cells) {
+                lastFrame = new byte[(int) Math.min(cells, Integer.MAX_VALUE)];
+            }
+        }
+
+        ensureCapacity((long) (width + NEWLINE.length) * height + NEWLINE.length);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte glyph = glyph(maze, x, y);
+                buffer[length++] = glyph;
+
+                if (mode == Mode.DELTA) lastFrame[y * width + x] = glyph;
+            }
+
+            put(NEWLINE);
+        }
+
+        put(NEWLINE);
+    }
+
+    // builds a frame of only the cells that changed since the last one
+    private void renderDelta(Maze maze) {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+
+        // the cell the cursor will print to next, which saves a move when changed cells are side by side
+        int cursorX = -1, cursorY = -1;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte glyph = glyph(maze, x, y);
+                if (glyph == lastFrame[y * width + x]) continue;
+
+                lastFrame[y * width + x] = glyph;
+
+                if (x != cursorX || y != cursorY) moveCursor(x, y);
+
+                ensureCapacity(1);
+                buffer[length++] = glyph;
+
+                cursorX = x + 1;
+                cursorY = y;
+            }
+        }
+
+        // park the cursor beneath the maze and clear anything printed there since the last frame
+        moveCursor(0, height + 1);
+        put(CLEAR_BELOW);
+    }
+
+    // builds a frame of only the cells the tracked maze said had changed, along with where the actor was and is
+    private void renderDirty(Maze maze) {
+        redraw(maze, lastActorX, lastActorY);
+
+        for (int i = 0; i < dirtyCount; i++) {
+            redraw(maze, dirtyCells[i * 2], dirtyCells[i * 2 + 1]);
+        }
+
+        redraw(maze, maze.getActorX(), maze.getActorY());
+
+        moveCursor(0, maze.getHeight() + 1);
+        put(CLEAR_BELOW);
+    }
+
+    // adds a single cell to the frame if its glyph has changed since the last one
+    private void redraw(Maze maze, int x, int y) {
+        int width = maze.getWidth();
+        if (x < 0 || y < 0 || x >= width || y >= maze.getHeight()) return;
+
+        byte glyph = glyph(maze, x, y);
+        if (glyph == lastFrame[y * width + x]) return;
+
+        lastFrame[y * width + x] = glyph;
+
+        moveCursor(x, y);
+        ensureCapacity(1);
+        buffer[length++] = glyph;
+    }
+
+    // returns the glyph for a cell, which is the actor if it is standing there
+    private static byte glyph(Maze maze, int x, int y) {
+        if (x == maze.getActorX() && y == maze.getActorY()) return ACTOR;
+
+        return GLYPHS[maze.getCell(x, y)];
+    }
+
+    // adds an escape sequence that moves the cursor to a cell, counting from 1 as the terminal does
+    private void moveCursor(int x, int y) {
+        ensureCapacity(24);
+
+        buffer[length++] = 033;
+        buffer[length++] = '[';
+        putNumber(y + 1);
+        buffer[length++] = ';';
+        putNumber(x + 1);
+        buffer[length++] = 'H';
+    }
+
+    // adds the decimal digits of a positive number
+    private void putNumber(int number) {
+        int digits = 1;
+        for (int n = number; n >= 10; n /= 10) digits++;
+
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+
+        length += digits;
+    }
+
+    // adds bytes to the frame
+    private void put(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    // grows the frame buffer so that it has room for the given number of bytes more
+    private void ensureCapacity(long extra) {
+        long needed = length + extra;
+        if (needed > buffer.length) {
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("frame of " + needed + " bytes is too large to draw");
+            }
+
+            buffer = Arrays.copyOf(buffer, (int) Math.max(needed, Math.min(buffer.length * 2L, Integer.MAX_VALUE - 8)));
+        }
+    }
+}
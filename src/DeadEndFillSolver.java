@@ -0,0 +1,277 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    A dead-end filling solver that runs on every core. The maze is split into tiles, and each tile fills in any open
+    cell with fewer than two open neighbours, chasing each dead-end back up its corridor until it reaches a junction
+    or the edge of the tile. A chase that runs off the edge hands the cell it was about to fill to the tile next door,
+    which carries on from it in the next round. Only the first round scans every cell; after that a round only runs the
+    tiles that were handed cells, and rounds run on a ForkJoinPool until nothing is handed on, at which point every
+    dead-end has been filled and only the corridors between the actor and the end are left. Filled cells are marked
+    CELL_BAD, and the actor then walks the shortest of the corridors that are left.
+
+    Open cells are kept one bit each, with every row padded out to a whole number of longs and every tile a whole
+    number of longs wide, so two tiles never write to the same long. A tile can read a neighbouring tile's cells
+    while they are being filled, but cells only ever go from open to filled, so an out of date read only makes a
+    cell look less of a dead-end than it is. Whichever tile fills the neighbour that made it look that way goes on
+    to hand it over, so nothing is missed.
+ */
+public class DeadEndFillSolver extends BfsSolver {
+    // the size of each tile, in longs across and cells down
+    private static final int TILE_WORDS = 4;
+    private static final int TILE_HEIGHT = 256;
+
+    // the pool that the tiles are filled on
+    private final ForkJoinPool pool;
+
+    // one bit per cell, set while the cell is open, with each row starting on a new long, and the same before any
+    // cell was filled
+    private long[] open;
+    private long[] opened;
+    private int rowWords;
+
+    // the number of tiles across and down
+    private int tilesAcross, tilesDown;
+
+    // the two cells that are never filled, as the route has to run between them
+    private int start, goal;
+
+    // the cells that chases ran off the edge of each tile into, as two sets that take turns being written and then
+    // read by the next round, each indexed by tile * 4 + the direction the chase ran off in
+    private IntQueue[][] handoffs;
+
+    // the number of rounds of filling run so far, the first of which scans every cell
+    private int round;
+
+    // the tiles the current round runs, numbered across then down
+    private int[] activeTiles;
+    private int activeCount;
+
+    // fills dead-ends on the common pool
+    public DeadEndFillSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // fills dead-ends on the given pool
+    public DeadEndFillSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    protected boolean search(int start, int goal) {
+        this.start = start;
+        this.goal = goal;
+
+        rowWords = (width + 63) >>> 6;
+        open = new long[rowWords * height];
+        tilesAcross = (rowWords + TILE_WORDS - 1) / TILE_WORDS;
+        tilesDown = (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+
+        int tiles = tilesAcross * tilesDown;
+        handoffs = new IntQueue[2][tiles * 4];
+        for (IntQueue[] set : handoffs) {
+            for (int i = 0; i < set.length; i++) set[i] = new IntQueue(4);
+        }
+
+        activeTiles = new int[tiles];
+        for (int i = 0; i < tiles; i++) activeTiles[i] = i;
+        activeCount = tiles;
+
+        round = 0;
+        runTiles(true);
+        opened = open.clone();
+
+        // keep going until a whole round hands nothing on
+        while (activeCount > 0) {
+            runTiles(false);
+            round++;
+            findActiveTiles();
+        }
+
+        // mark every cell that was filled in as a bad path
+        for (int i = 0; i < open.length; i++) {
+            long filled = opened[i] & ~open[i];
+            int y = i / rowWords, left = (i % rowWords) * 64;
+
+            while (filled != 0) {
+                maze.markCell(left + Long.numberOfTrailingZeros(filled), y, Maze.CELL_BAD);
+                filled &= filled - 1;
+            }
+        }
+
+        // find a route through whatever is left, which is only the corridors between the start and the goal
+        boolean found = super.search(start, goal);
+        open = null;
+        opened = null;
+        handoffs = null;
+        activeTiles = null;
+
+        return found;
+    }
+
+    // only cells that survived the fill are open to the route
+    @Override
+    protected boolean isOpen(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && isOpenBit(x, y);
+    }
+
+    // returns if the given point has not been filled in
+    private boolean isOpenBit(int x, int y) {
+        return (open[y * rowWords + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    // returns the number of open cells next to the given point
+    private int countOpenNeighbours(int x, int y) {
+        int count = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (isOpen(x + direction.dx, y + direction.dy)) count++;
+        }
+
+        return count;
+    }
+
+    // returns if the given point is an open dead-end that can be filled in
+    private boolean isFillable(int x, int y) {
+        int cell = y * width + x;
+        return isOpenBit(x, y) && countOpenNeighbours(x, y) <= 1 && cell != start && cell != goal;
+    }
+
+    // runs the active tiles, on the pool unless there is only the one
+    private void runTiles(boolean opening) {
+        TileTask task = new TileTask(0, activeCount, opening);
+
+        if (activeCount == 1) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    // lists the tiles that were handed cells by the round just run
+    private void findActiveTiles() {
+        IntQueue[] written = handoffs[(round + 1) & 1];
+        activeCount = 0;
+
+        for (int tile = 0; tile < tilesAcross * tilesDown; tile++) {
+            int tileX = tile % tilesAcross, tileY = tile / tilesAcross;
+
+            for (Direction direction : DIRECTIONS) {
+                int neighbourX = tileX + direction.dx, neighbourY = tileY + direction.dy;
+                if (neighbourX < 0 || neighbourY < 0 || neighbourX >= tilesAcross || neighbourY >= tilesDown) continue;
+
+                int neighbour = neighbourY * tilesAcross + neighbourX;
+                if (!written[neighbour * 4 + direction.opposite().ordinal()].isEmpty()) {
+                    activeTiles[activeCount++] = tile;
+                    break;
+                }
+            }
+        }
+    }
+
+    // fills in the dead-ends of a tile, starting from every cell in the first round and after that from only the
+    // cells handed over by the tiles around it
+    private void fillTile(int tile, int left, int top, int right, int bottom) {
+        IntQueue[] outgoing = handoffs[round & 1];
+
+        if (round == 0) {
+            for (int y = top; y < bottom; y++) {
+                for (int x = left; x < right; x++) {
+                    chase(tile, x, y, left, top, right, bottom, outgoing);
+                }
+            }
+
+            return;
+        }
+
+        IntQueue[] incoming = handoffs[(round + 1) & 1];
+        int tileX = tile % tilesAcross, tileY = tile / tilesAcross;
+
+        for (Direction direction : DIRECTIONS) {
+            int neighbourX = tileX + direction.dx, neighbourY = tileY + direction.dy;
+            if (neighbourX < 0 || neighbourY < 0 || neighbourX >= tilesAcross || neighbourY >= tilesDown) continue;
+
+            // the tile over that way handed its cells over by running off of it the opposite way
+            IntQueue queue = incoming[(neighbourY * tilesAcross + neighbourX) * 4 + direction.opposite().ordinal()];
+            while (!queue.isEmpty()) {
+                int cell = queue.remove();
+                chase(tile, cell % width, cell / width, left, top, right, bottom, outgoing);
+            }
+        }
+    }
+
+    // fills a dead-end, then follows its corridor for as long as that leaves another dead-end behind, handing the next
+    // cell over to the tile next door if the corridor runs off the edge of this one
+    private void chase(int tile, int x, int y, int left, int top, int right, int bottom, IntQueue[] outgoing) {
+        while (isFillable(x, y)) {
+            open[y * rowWords + (x >>> 6)] &= ~(1L << x);
+
+            int next = -1;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                if (isOpen(x + DIRECTIONS[d].dx, y + DIRECTIONS[d].dy)) next = d;
+            }
+
+            if (next < 0) return;
+
+            x += DIRECTIONS[next].dx;
+            y += DIRECTIONS[next].dy;
+
+            if (x < left || x >= right || y < top || y >= bottom) {
+                outgoing[tile * 4 + next].add(y * width + x);
+                return;
+            }
+        }
+    }
+
+    // marks every cell of a tile that is not a wall as open
+    private void openTile(int left, int top, int right, int bottom) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                if (maze.getCell(x, y) != Maze.CELL_WALL) {
+                    open[y * rowWords + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+    }
+
+    // a task over a range of the active tiles, which splits in half until it is down to a single tile
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // the range of the active tiles
+        private final int from, to;
+
+        // whether the tiles are being opened up rather than filled
+        private final boolean opening;
+
+        TileTask(int from, int to, boolean opening) {
+            this.from = from;
+            this.to = to;
+            this.opening = opening;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(from, middle, opening), new TileTask(middle, to, opening));
+                return;
+            }
+
+            int tile = activeTiles[from];
+            int left = (tile % tilesAcross) * TILE_WORDS * 64;
+            int top = (tile / tilesAcross) * TILE_HEIGHT;
+            int right = Math.min(left + TILE_WORDS * 64, width);
+            int bottom = Math.min(top + TILE_HEIGHT, height);
+
+            if (opening) {
+                openTile(left, top, right, bottom);
+            } else {
+                fillTile(tile, left, top, right, bottom);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The four directions the actor can face, along with the step each one takes and the direction each one turns into.
+    Everything is looked up from tables so that probing and turning never need to branch on the direction.
+ */
+enum Direction {
+    NORTH(0, -1), SOUTH(0, 1), EAST(1, 0), WEST(-1, 0);
+
+    // the change in x and y of a step taken in this direction
+    final int dx, dy;
+
+    // the direction faced after turning clockwise, counter-clockwise or all the way around, indexed by ordinal
+    private static final Direction[] CLOCKWISE = {EAST, WEST, SOUTH, NORTH};
+    private static final Direction[] COUNTER_CLOCKWISE = {WEST, EAST, NORTH, SOUTH};
+    private static final Direction[] OPPOSITE = {SOUTH, NORTH, WEST, EAST};
+
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    Direction clockwise() { return CLOCKWISE[ordinal()]; }
+    Direction counterClockwise() { return COUNTER_CLOCKWISE[ordinal()]; }
+    Direction opposite() { return OPPOSITE[ordinal()]; }
+}
@@ -0,0 +1,305 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    The number of steps from every open cell of a maze to a single target cell, which is the end of the maze unless
+    told otherwise. Once it is built, an actor anywhere in the maze can find its best next step with four lookups,
+    by stepping to whichever neighbour is one step closer.
+
+    The field is built with a breadth-first search from the target that goes one level at a time. A level with only a
+    few cells is expanded directly, and a wide one is split into chunks that are expanded on a ForkJoinPool, each
+    claiming the cells it reaches with a compare-and-set on a shared bitset so that no cell is reached twice. Every
+    cell gets the same distance however the chunks are scheduled.
+
+    Building a field costs as much as the maze is big, so fields for the end of a topology are kept for as long as
+    the topology is, and shared by everything that asks for one.
+ */
+public class DistanceField {
+    // the distance of a wall, or of an open cell that the target cannot be reached from
+    public static final int UNREACHABLE = -1;
+
+    // the number of cells a level needs before it is split across the pool, and the size of each chunk it is split into
+    private static final int PARALLEL_LEVEL = 4096;
+    private static final int CHUNK_SIZE = 1024;
+
+    // the rows of cells that are scanned for walls at a time
+    private static final int ROW_BAND = 64;
+
+    // every direction, indexed by ordinal
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // the fields built for the end of each topology, dropped along with the topology
+    private static final Map<MazeTopology, DistanceField> CACHE = new WeakHashMap<>();
+
+    // the width and height of the maze
+    private final int width;
+    private final int height;
+
+    // the cell the distances are measured to
+    private final int targetX, targetY;
+
+    // the distance of every cell as distances[y * width + x], or UNREACHABLE
+    private final int[] distances;
+
+    // the furthest any reachable cell is from the target
+    private int maxDistance;
+
+    // returns the field to the end of a topology, building it on the common pool the first time it is asked for
+    //  - throws IllegalArgumentException if the topology has no end
+    public static DistanceField of(MazeTopology topology) {
+        synchronized (CACHE) {
+            DistanceField field = CACHE.get(topology);
+            if (field != null) return field;
+        }
+
+        // built outside of the lock, so that fields for different topologies can be built at the same time
+        DistanceField field = new DistanceField(topology, topology.getEndX(), topology.getEndY());
+
+        synchronized (CACHE) {
+            DistanceField raced = CACHE.get(topology);
+            if (raced != null) return raced;
+
+            CACHE.put(topology, field);
+            return field;
+        }
+    }
+
+    // builds the field to the given cell on the common pool
+    public DistanceField(CellStore cells, int targetX, int targetY) {
+        this(cells, targetX, targetY, ForkJoinPool.commonPool());
+    }
+
+    // builds the field to the given cell on the given pool, treating any cell that is not a wall as open
+    //  - throws IllegalArgumentException if the target is a wall or outside of the maze
+    public DistanceField(CellStore cells, int targetX, int targetY, ForkJoinPool pool) {
+        width = cells.getWidth();
+        height = cells.getHeight();
+
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "maze of " + width + "x" + height + " is too large for a distance field");
+        }
+
+        if (targetX < 0 || targetY < 0 || targetX >= width || targetY >= height
+                || cells.get(targetX, targetY) == Maze.CELL_WALL) {
+            throw new IllegalArgumentException("(" + targetX + ", " + targetY + ") is not an open cell");
+        }
+
+        this.targetX = targetX;
+        this.targetY = targetY;
+
+        distances = new int[width * height];
+        Arrays.fill(distances, UNREACHABLE);
+
+        new Search(cells, pool).run();
+    }
+
+    // the state of a single build, which is thrown away once the distances are filled in
+    private class Search {
+        private final CellStore cells;
+        private final ForkJoinPool pool;
+
+        // one bit per cell, with every row starting on a new long, set once a cell is claimed by the search or if it
+        // is a wall or past the end of its row
+        private final int rowBits;
+        private AtomicLongArray claimed;
+
+        // the cells of the level being expanded and of the next one
+        private int[] level = new int[64];
+        private int levelSize;
+        private int[] next = new int[64];
+        private int nextSize;
+
+        // while a level is split across the pool: where each chunk writes the cells it reaches, and how many it wrote
+        private int[] chunkCounts = new int[0];
+
+        Search(CellStore cells, ForkJoinPool pool) {
+            this.cells = cells;
+            this.pool = pool;
+            this.rowBits = ((width + 63) >>> 6) << 6;
+        }
+
+        void run() {
+            long[] blocked = new long[(int) (((long) rowBits * height) >>> 6)];
+            pool.invoke(new WallTask(blocked, 0, height));
+            claimed = new AtomicLongArray(blocked);
+
+            int target = targetY * width + targetX;
+            claim(targetX, targetY);
+            distances[target] = 0;
+            level[levelSize++] = target;
+
+            int distance = 0;
+            while (levelSize > 0) {
+                distance++;
+
+                if (levelSize < PARALLEL_LEVEL) {
+                    // a new cell is reached from each of up to three sides, or all four for the target
+                    ensureNext(levelSize * 4);
+                    nextSize = expand(0, levelSize, distance, 0);
+                } else {
+                    int chunks = (levelSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                    ensureNext(chunks * CHUNK_SIZE * 4);
+                    if (chunkCounts.length < chunks) chunkCounts = new int[chunks];
+
+                    pool.invoke(new LevelTask(0, chunks, distance));
+
+                    // pull each chunk's cells together at the front of the next level
+                    nextSize = 0;
+                    for (int chunk = 0; chunk < chunks; chunk++) {
+                        System.arraycopy(next, chunk * CHUNK_SIZE * 4, next, nextSize, chunkCounts[chunk]);
+                        nextSize += chunkCounts[chunk];
+                    }
+                }
+
+                int[] swap = level;
+                level = next;
+                levelSize = nextSize;
+                next = swap;
+            }
+
+            maxDistance = distance - 1;
+        }
+
+        // makes sure the next level can hold the given number of cells
+        private void ensureNext(int size) {
+            if (next.length < size) next = new int[Math.max(size, next.length * 2)];
+        }
+
+        // reaches out from a range of the level, writing each cell it claims to the next level from the given index
+        // returns the number of cells it claimed
+        private int expand(int from, int to, int distance, int out) {
+            int written = out;
+
+            for (int i = from; i < to; i++) {
+                int cell = level[i];
+                int x = cell % width;
+                int y = cell / width;
+
+                for (Direction direction : DIRECTIONS) {
+                    int nextX = x + direction.dx;
+                    int nextY = y + direction.dy;
+
+                    if (nextX >= 0 && nextY >= 0 && nextX < width && nextY < height && claim(nextX, nextY)) {
+                        int reached = nextY * width + nextX;
+                        distances[reached] = distance;
+                        next[written++] = reached;
+                    }
+                }
+            }
+
+            return written - out;
+        }
+
+        // claims an open cell for the search, returning false if it was a wall or already claimed
+        private boolean claim(int x, int y) {
+            long bit = (long) y * rowBits + x;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            while (true) {
+                long bits = claimed.get(word);
+                if ((bits & mask) != 0) return false;
+                if (claimed.compareAndSet(word, bits, bits | mask)) return true;
+            }
+        }
+
+        // expands a range of chunks of a level, halving it until there is a single chunk left
+        private class LevelTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int from, to;
+            private final int distance;
+
+            LevelTask(int from, int to, int distance) {
+                this.from = from;
+                this.to = to;
+                this.distance = distance;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > 1) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new LevelTask(from, middle, distance), new LevelTask(middle, to, distance));
+                    return;
+                }
+
+                int start = from * CHUNK_SIZE;
+                chunkCounts[from] = expand(start, Math.min(start + CHUNK_SIZE, levelSize), distance, start * 4);
+            }
+        }
+
+        // marks the walls of a band of rows, and the padding past the end of each row, as already claimed
+        //  - each row starts on a new long, so two bands never write to the same one
+        private class WallTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final long[] blocked;
+            private final int fromY, toY;
+
+            WallTask(long[] blocked, int fromY, int toY) {
+                this.blocked = blocked;
+                this.fromY = fromY;
+                this.toY = toY;
+            }
+
+            @Override
+            protected void compute() {
+                if (toY - fromY > ROW_BAND) {
+                    int middle = (fromY + toY) >>> 1;
+                    invokeAll(new WallTask(blocked, fromY, middle), new WallTask(blocked, middle, toY));
+                    return;
+                }
+
+                for (int y = fromY; y < toY; y++) {
+                    long row = (long) y * rowBits;
+                    for (int x = 0; x < rowBits; x++) {
+                        if (x >= width || cells.get(x, y) == Maze.CELL_WALL) {
+                            long bit = row + x;
+                            blocked[(int) (bit >>> 6)] |= 1L << bit;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // returns the width and height of the maze the field was built over
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // returns the cell the distances are measured to
+    public int getTargetX() { return targetX; }
+    public int getTargetY() { return targetY; }
+
+    // returns the furthest any reachable cell is from the target
+    public int getMaxDistance() { return maxDistance; }
+
+    // returns the number of steps from a cell to the target, or UNREACHABLE if there is no way there
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return UNREACHABLE;
+
+        return distances[y * width + x];
+    }
+
+    // returns the direction of a step from a cell that takes it one step closer to the target, or null if the cell is
+    // the target or cannot reach it
+    //  - when more than one step is as good, the first in the order north, south, east, west is picked
+    public Direction nextStep(int x, int y) {
+        int distance = getDistance(x, y);
+        if (distance <= 0) return null;
+
+        for (Direction direction : DIRECTIONS) {
+            if (getDistance(x + direction.dx, y + direction.dy) == distance - 1) return direction;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+    Eller's algorithm, which builds the maze one row of rooms at a time. Each room belongs to a set of rooms that are
+    already connected. Neighbouring rooms in different sets are joined at random, every set carries down into the next
+    row at least once, and the last row joins everything that is left. Only the sets of the current row are kept, so
+    a maze can be streamed out row by row without ever being held whole.
+ */
+public class EllerGenerator implements MazeGenerator {
+    // the seed that every maze is generated from
+    private final long seed;
+
+    public EllerGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void carve(CellStore store, int columns, int rows) {
+        stream(columns, rows, (y, cells) -> {
+            for (int x = 0; x < cells.length; x++) {
+                if (cells[x] != Maze.CELL_WALL) store.set(x, y, cells[x]);
+            }
+        });
+    }
+
+    // generates a maze with the given number of rooms across and down, handing each row of cells to the sink from
+    // top to bottom, endpoints included
+    public void stream(int columns, int rows, RowSink sink) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int width = MazeGenerator.widthFor(columns);
+        int height = MazeGenerator.heightFor(rows);
+
+        // the row of cells being built
+        int[] line = new int[width];
+
+        // the set of each room in the current row, as a union-find over columns
+        int[] sets = new int[columns];
+        int[] nextSets = new int[columns];
+
+        // the set each room belongs to, and whether it carries down into the next row
+        int[] roots = new int[columns];
+        boolean[] down = new boolean[columns];
+
+        // per set, indexed by the column that leads it: whether it carries down yet, its last room, and the room that
+        // leads it in the next row
+        boolean[] carried = new boolean[columns];
+        int[] lastColumns = new int[columns];
+        int[] leaders = new int[columns];
+
+        // the top wall, with the start opened in it
+        Arrays.fill(line, Maze.CELL_WALL);
+        line[1] = Maze.CELL_PATH;
+        sink.row(0, line);
+
+        for (int column = 0; column < columns; column++) {
+            sets[column] = column;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            boolean last = row == rows - 1;
+
+            // the row of rooms, joining neighbours in different sets at random, or always on the last row
+            Arrays.fill(line, Maze.CELL_WALL);
+            for (int column = 0; column < columns; column++) {
+                line[column * 2 + 1] = Maze.CELL_PATH;
+            }
+
+            for (int column = 0; column < columns - 1; column++) {
+                int set = find(sets, column);
+                int nextSet = find(sets, column + 1);
+
+                if (set != nextSet && (last || random.nextBoolean())) {
+                    sets[nextSet] = set;
+                    line[column * 2 + 2] = Maze.CELL_PATH;
+                }
+            }
+
+            sink.row(row * 2 + 1, line);
+
+            // the row of walls beneath the rooms
+            Arrays.fill(line, Maze.CELL_WALL);
+
+            if (last) {
+                // the bottom wall, with the end opened in it
+                line[width - 2] = Maze.CELL_PATH;
+                sink.row(height - 1, line);
+                break;
+            }
+
+            // carry rooms down at random, then make sure that every set carries down at least once
+            Arrays.fill(carried, false);
+            for (int column = 0; column < columns; column++) {
+                roots[column] = find(sets, column);
+                down[column] = random.nextBoolean();
+
+                if (down[column]) carried[roots[column]] = true;
+                lastColumns[roots[column]] = column;
+            }
+
+            for (int column = 0; column < columns; column++) {
+                if (!carried[roots[column]] && lastColumns[roots[column]] == column) {
+                    down[column] = true;
+                    carried[roots[column]] = true;
+                }
+
+                if (down[column]) line[column * 2 + 1] = Maze.CELL_PATH;
+            }
+
+            sink.row(row * 2 + 2, line);
+
+            // rooms beneath a carried room stay in its set, and every other room starts a set of its own
+            Arrays.fill(leaders, -1);
+            for (int column = 0; column < columns; column++) {
+                if (down[column]) {
+                    if (leaders[roots[column]] < 0) leaders[roots[column]] = column;
+                    nextSets[column] = leaders[roots[column]];
+                } else {
+                    nextSets[column] = column;
+                }
+            }
+
+            int[] swap = sets;
+            sets = nextSets;
+            nextSets = swap;
+        }
+    }
+
+    // returns the column that leads the given column's set, halving the path to it along the way
+    private static int find(int[] sets, int column) {
+        while (sets[column] != column) {
+            sets[column] = sets[sets[column]];
+            column = sets[column];
+        }
+
+        return column;
+    }
+
+    // receives the rows of a maze one at a time, from top to bottom
+    public interface RowSink {
+        // the cells are only valid until the call returns, as the array is reused for the next row
+        void row(int y, int[] cells);
+    }
+}
@@ -0,0 +1,33 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The flight recorder events that MazeMetrics records solves and dead ends as. The flight recorder API is not part of
+    Java 8, so the events live in the src-jfr source folder, which is built on its own with a newer JDK, and MazeMetrics
+    only ever sees them through this interface. Without them, or on a runtime without the flight recorder, nothing is
+    recorded.
+
+    Every MazeMetrics loads an instance of its own, which keeps the events in progress for the maze it listens to.
+ */
+interface FlightEvents {
+    // the class that implements the events, which is looked up by name since it is not always built
+    String IMPLEMENTATION = "JfrFlightEvents";
+
+    // begins and ends the event spanning a solve
+    void solveStarted();
+    void solveFinished(int width, int height, long steps, long deadEnds, boolean complete);
+
+    // begins and ends the event spanning the actor backing out of a dead end
+    void retraceStarted(int x, int y);
+    void retraceFinished(long length);
+
+    // returns the events, or null if they were not built or the runtime has no flight recorder
+    static FlightEvents load() {
+        try {
+            return (FlightEvents) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+}
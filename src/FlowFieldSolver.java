@@ -0,0 +1,47 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    Walks the actor down a DistanceField to the end of the maze, taking whichever step brings it closer each time, so
+    it follows a shortest route from wherever it is without searching. A maze over a topology shares the field built
+    for it with every other maze over the same topology, so only the first of them pays for building it.
+ */
+public class FlowFieldSolver implements MazeSolver {
+    // the maze being navigated
+    private Maze maze;
+
+    // the field being followed, or null if the maze has no end, and the cells it was built over if it was built here
+    private DistanceField field;
+    private CellStore fieldSource;
+
+    @Override
+    public void init(Maze maze) {
+        this.maze = maze;
+
+        if (maze.getEndX() < 0) {
+            field = null;
+        } else if (maze.getTopology() != null) {
+            field = DistanceField.of(maze.getTopology());
+        } else if (field == null || fieldSource != maze.getCells()) {
+            field = new DistanceField(maze.getCells(), maze.getEndX(), maze.getEndY());
+            fieldSource = maze.getCells();
+        }
+    }
+
+    @Override
+    public boolean step() {
+        if (field == null) return false;
+
+        Direction next = field.nextStep(maze.getActorX(), maze.getActorY());
+        if (next == null) return false;
+
+        maze.setFace(next);
+        maze.move();
+
+        return true;
+    }
+
+    // returns the field being followed, or null if the maze has no end
+    public DistanceField getField() { return field; }
+}
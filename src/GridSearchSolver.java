@@ -0,0 +1,129 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The shared half of the shortest-path solvers. On its first step the solver searches from the actor to the end of
+    the maze over every cell that is not a wall, keeping visited cells in a bitset and the direction each cell was
+    reached from in two bits, and then walks the actor down the route it found one cell per step.
+ */
+public abstract class GridSearchSolver implements MazeSolver {
+    // every direction, indexed by its two-bit code
+    static final Direction[] DIRECTIONS = Direction.values();
+
+    // the maze being navigated and its size
+    protected Maze maze;
+    protected int width, height;
+
+    // one bit per cell, set once the search has reached the cell
+    private long[] visited;
+
+    // two bits per cell, holding the direction that was stepped in to reach the cell
+    private long[] parents;
+
+    // the route from the actor to the end as direction codes, and how far along it the actor is
+    private byte[] route;
+    private int routeIndex;
+
+    // whether the search has been run yet
+    private boolean searched;
+
+    @Override
+    public void init(Maze maze) {
+        this.maze = maze;
+
+        width = maze.getWidth();
+        height = maze.getHeight();
+
+        route = null;
+        routeIndex = 0;
+        searched = false;
+    }
+
+    @Override
+    public boolean step() {
+        if (!searched) {
+            plan();
+            searched = true;
+        }
+
+        if (route == null || routeIndex == route.length) return false;
+
+        maze.setFace(DIRECTIONS[route[routeIndex++]]);
+        maze.move();
+
+        return true;
+    }
+
+    // returns the number of cells in the planned route, or -1 if there is no route or it has not been planned yet
+    public int getRouteLength() { return route == null ? -1 : route.length; }
+
+    // returns the most cells a maze can have for the search to handle it, which is called once width and height are set
+    protected long getMaxCells() { return Integer.MAX_VALUE; }
+
+    // searches from the start cell to the goal cell, marking every cell it reaches and the direction it came from
+    // returns true if the goal was reached
+    protected abstract boolean search(int start, int goal);
+
+    // returns if the given point is inside the maze and not a wall
+    protected boolean isOpen(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && maze.getCell(x, y) != Maze.CELL_WALL;
+    }
+
+    // returns if the search has reached the given cell
+    protected boolean isVisited(int cell) {
+        return (visited[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // marks the given cell as reached
+    protected void markVisited(int cell) {
+        visited[cell >>> 6] |= 1L << cell;
+    }
+
+    // records the direction that was stepped in to reach the given cell
+    protected void setParent(int cell, int direction) {
+        int shift = (cell & 31) << 1;
+        parents[cell >>> 5] = (parents[cell >>> 5] & ~(3L << shift)) | ((long) direction << shift);
+    }
+
+    // returns the direction that was stepped in to reach the given cell
+    protected int getParent(int cell) {
+        return (int) (parents[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+    }
+
+    // runs the search from the actor to the end, and turns its result into a route
+    private void plan() {
+        if (maze.getEndX() < 0) return;
+
+        long cells = (long) width * height;
+        if (cells > getMaxCells()) {
+            throw new IllegalStateException("maze of " + width + "x" + height + " is too large to search");
+        }
+
+        visited = new long[(int) ((cells + 63) >>> 6)];
+        parents = new long[(int) ((cells + 31) >>> 5)];
+
+        int start = maze.getActorY() * width + maze.getActorX();
+        int goal = maze.getEndY() * width + maze.getEndX();
+
+        if (search(start, goal)) {
+            // count the steps back from the goal, then fill the route in from its far end
+            int length = 0;
+            for (int cell = goal; cell != start; length++) {
+                Direction direction = DIRECTIONS[getParent(cell)];
+                cell -= direction.dy * width + direction.dx;
+            }
+
+            route = new byte[length];
+            for (int cell = goal, i = length - 1; cell != start; i--) {
+                int direction = getParent(cell);
+                route[i] = (byte) direction;
+                cell -= DIRECTIONS[direction].dy * width + DIRECTIONS[direction].dx;
+            }
+        }
+
+        // the search state is only needed to build the route
+        visited = null;
+        parents = null;
+    }
+}
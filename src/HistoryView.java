@@ -0,0 +1,27 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A read-only view of the actor's history. The history is kept as the direction of every step taken from the
+    origin, so positions are found by walking forward from it rather than being stored one by one.
+ */
+public interface HistoryView {
+    // returns the number of steps in the history
+    int size();
+
+    // returns the direction of the step at the given index, 0 being the oldest
+    Direction getDirection(int index);
+
+    // returns the position that the oldest step was taken from
+    int getOriginX();
+    int getOriginY();
+
+    // walks the history from oldest to newest, handing the visitor each position that a step was taken from
+    void forEachPosition(PositionVisitor visitor);
+
+    // receives the positions of the history one at a time
+    interface PositionVisitor {
+        void visit(int x, int y);
+    }
+}
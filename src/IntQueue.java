@@ -0,0 +1,67 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A first-in first-out queue of ints kept in a growable ring buffer, used as the open set of breadth-first searches.
+ */
+public class IntQueue {
+    // the ring buffer, whose length is always a power of two
+    private int[] values;
+
+    // the index of the oldest value and the number of values held
+    private int head;
+    private int size;
+
+    public IntQueue() {
+        this(16);
+    }
+
+    public IntQueue(int capacity) {
+        values = new int[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+    }
+
+    // adds a value to the back of the queue
+    public void add(int value) {
+        if (size == values.length) {
+            grow();
+        }
+
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    // removes and returns the value at the front of the queue
+    public int remove() {
+        if (size == 0) {
+            throw new IllegalStateException("queue is empty");
+        }
+
+        int value = values[head];
+        head = (head + 1) & (values.length - 1);
+        size--;
+
+        return value;
+    }
+
+    // returns the number of values in the queue
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // empties the queue while keeping its buffer
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // doubles the buffer, unrolling the ring so that the oldest value is first
+    private void grow() {
+        int[] grown = new int[values.length * 2];
+        System.arraycopy(values, head, grown, 0, values.length - head);
+        System.arraycopy(values, 0, grown, values.length - head, head);
+
+        values = grown;
+        head = 0;
+    }
+}
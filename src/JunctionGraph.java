@@ -0,0 +1,203 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A maze contracted down to the places where there is a decision to make. Every open cell that does not have exactly
+    two open neighbours is a node (a junction, a dead end, or a cell walled in on every side), as are the start and the
+    end, and every corridor between two nodes becomes a single edge that remembers how long it is and which way it
+    comes out.
+
+    Each node has four edge slots, one for each direction it can be left in, so following an edge is a couple of array
+    reads no matter how long or winding the corridor is. The graph is built once in time proportional to the size of
+    the maze, walking each corridor a single time, and only ever reads the cells, so it can be shared by any number of
+    solves over the same layout.
+ */
+public class JunctionGraph {
+    // every direction, indexed by ordinal
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // the width and height of the maze
+    private final int width;
+    private final int height;
+
+    // the cell index (y * width + x) of each node, in increasing order
+    private final int[] nodeCells;
+
+    // for each node and direction, at node * 4 + direction: the node the corridor leads to, or -1 if there is a wall
+    // that way, the number of steps it takes to get there, and the direction of the last of those steps
+    private final int[] targets;
+    private final int[] lengths;
+    private final byte[] arrivals;
+
+    // the nodes at the start and end, or -1 if the maze has no opening for them
+    private final int startNode;
+    private final int endNode;
+
+    // the number of corridors between nodes
+    private final int edgeCount;
+
+    // builds the graph of the given cells, treating any cell that is not a wall as open
+    public JunctionGraph(CellStore cells) {
+        width = cells.getWidth();
+        height = cells.getHeight();
+
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maze of " + width + "x" + height + " is too large to contract");
+        }
+
+        int[] endpoints = MazeTopology.findEndpoints(cells);
+        int start = endpoints[0] < 0 ? -1 : endpoints[1] * width + endpoints[0];
+        int end = endpoints[2] < 0 ? -1 : endpoints[3] * width + endpoints[2];
+
+        // one bit per cell for whether it is open, and another for whether it is a node
+        long[] open = new long[(int) (((long) width * height + 63) >>> 6)];
+        long[] isNode = new long[open.length];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (cells.get(x, y) != Maze.CELL_WALL) {
+                    int cell = y * width + x;
+                    open[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+
+        int[] found = new int[64];
+        int count = 0;
+
+        for (int cell = 0; cell < width * height; cell++) {
+            if (!isSet(open, cell)) continue;
+
+            if (cell == start || cell == end || openNeighbours(open, cell) != 2) {
+                isNode[cell >>> 6] |= 1L << cell;
+
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = cell;
+            }
+        }
+
+        nodeCells = Arrays.copyOf(found, count);
+        targets = new int[count * 4];
+        lengths = new int[count * 4];
+        arrivals = new byte[count * 4];
+        Arrays.fill(targets, -1);
+
+        // walk every corridor from one end, filling in the slots at both of its ends
+        int edges = 0;
+        for (int node = 0; node < count; node++) {
+            for (int d = 0; d < 4; d++) {
+                int slot = node * 4 + d;
+                if (targets[slot] >= 0) continue;
+
+                int cell = step(open, nodeCells[node], d);
+                if (cell < 0) continue;
+
+                int face = d;
+                int length = 1;
+                while (!isSet(isNode, cell)) {
+                    // a corridor cell has two ways out, and one of them is the way back
+                    int back = DIRECTIONS[face].opposite().ordinal();
+                    for (int turn = 0; turn < 4; turn++) {
+                        if (turn != back && step(open, cell, turn) >= 0) {
+                            face = turn;
+                            break;
+                        }
+                    }
+
+                    cell = step(open, cell, face);
+                    length++;
+                }
+
+                int target = Arrays.binarySearch(nodeCells, cell);
+                targets[slot] = target;
+                lengths[slot] = length;
+                arrivals[slot] = (byte) face;
+
+                int reverse = target * 4 + DIRECTIONS[face].opposite().ordinal();
+                targets[reverse] = node;
+                lengths[reverse] = length;
+                arrivals[reverse] = (byte) DIRECTIONS[d].opposite().ordinal();
+
+                edges++;
+            }
+        }
+
+        edgeCount = edges;
+        startNode = start < 0 ? -1 : Arrays.binarySearch(nodeCells, start);
+        endNode = end < 0 ? -1 : Arrays.binarySearch(nodeCells, end);
+    }
+
+    // returns the open cell one step from a cell in the given direction, or -1 if it is a wall or outside the maze
+    private int step(long[] open, int cell, int direction) {
+        int x = cell % width + DIRECTIONS[direction].dx;
+        int y = cell / width + DIRECTIONS[direction].dy;
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+
+        int next = y * width + x;
+        return isSet(open, next) ? next : -1;
+    }
+
+    // returns the number of open cells next to a cell
+    private int openNeighbours(long[] open, int cell) {
+        int neighbours = 0;
+        for (int d = 0; d < 4; d++) {
+            if (step(open, cell, d) >= 0) neighbours++;
+        }
+
+        return neighbours;
+    }
+
+    private static boolean isSet(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // returns the width and height of the maze the graph was built from
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // returns the number of nodes and the number of corridors between them
+    public int getNodeCount() { return nodeCells.length; }
+    public int getEdgeCount() { return edgeCount; }
+
+    // returns where a node is in the maze
+    public int getNodeX(int node) { return nodeCells[node] % width; }
+    public int getNodeY(int node) { return nodeCells[node] / width; }
+
+    // returns the node at a given point, or -1 if the point is a wall or partway down a corridor
+    public int nodeAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+
+        int node = Arrays.binarySearch(nodeCells, y * width + x);
+        return node < 0 ? -1 : node;
+    }
+
+    // returns the nodes at the start and end of the maze, or -1 if there is no opening for them
+    public int getStartNode() { return startNode; }
+    public int getEndNode() { return endNode; }
+
+    // returns the node reached by leaving a node in the given direction, or -1 if there is a wall that way
+    public int getTarget(int node, Direction direction) { return targets[node * 4 + direction.ordinal()]; }
+
+    // returns the number of steps it takes to reach the next node in the given direction, or 0 if there is none
+    public int getLength(int node, Direction direction) { return lengths[node * 4 + direction.ordinal()]; }
+
+    // returns the direction of the last step taken to reach the next node in the given direction, or null if there is
+    // a wall that way
+    public Direction getArrival(int node, Direction direction) {
+        int slot = node * 4 + direction.ordinal();
+        return targets[slot] < 0 ? null : DIRECTIONS[arrivals[slot]];
+    }
+
+    // returns the number of corridors leading out of a node
+    public int getDegree(int node) {
+        int degree = 0;
+        for (int d = 0; d < 4; d++) {
+            if (targets[node * 4 + d] >= 0) degree++;
+        }
+
+        return degree;
+    }
+}
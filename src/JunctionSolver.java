@@ -0,0 +1,359 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    The wall follower, run over a JunctionGraph so that each step takes the actor along a whole corridor instead of a
+    single cell. The decisions are the wall follower's own and are only made at junctions, dead ends and endpoints:
+    the first unvisited way out in the order right, ahead, back and left, backing out of dead ends the way it came,
+    and turning around partway down a corridor that leads somewhere it has already been.
+
+    With the trail on, the actor still walks every cell of every corridor and leaves exactly the trail the wall
+    follower would, along with its history, so it can be watched and drawn like any other solver. With the trail off,
+    the actor jumps from node to node without marking anything, and a solve costs as much as the junctions it visits
+    rather than the cells it walks.
+
+    The solver keeps track of which nodes it has left and which corridors it has been down in bitsets of its own, read
+    from the maze's marks when it takes over. The corridors that led to the node it took over at are read from the
+    actor's history, so it can back out past that node the same way the wall follower would.
+ */
+public class JunctionSolver implements MazeSolver {
+    // every direction, indexed by ordinal, and the order the ways out of a node are tried in relative to the way the
+    // actor faces: right, ahead, back, then left
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int[][] PREFERENCE = new int[4][4];
+
+    static {
+        for (Direction face : DIRECTIONS) {
+            PREFERENCE[face.ordinal()] = new int[] {
+                    face.clockwise().ordinal(), face.ordinal(), face.opposite().ordinal(),
+                    face.counterClockwise().ordinal()
+            };
+        }
+    }
+
+    // whether every cell of a corridor is walked and marked, or the actor jumps straight to the far end of it
+    private final boolean trail;
+
+    // the graph being walked, and the cells or topology it was built from if it was built here
+    private JunctionGraph graph;
+    private CellStore graphSource;
+
+    // the maze being navigated
+    private Maze maze;
+
+    // the node the actor is on, or -1 while it is making its way to one, and the way it faces
+    private int node;
+    private int face;
+
+    // whether the actor is backing out of a dead end
+    private boolean retreating;
+
+    // one bit per node, set once the actor has left it, and one bit per edge slot, set once the corridor has been
+    // walked from either end
+    private long[] left;
+    private long[] walked;
+
+    // the edge slots taken to reach the current node, newest last, and the number of steps along them
+    private int[] route = new int[64];
+    private int routeSize;
+    private long pathLength;
+
+    // walks every cell, leaving the same trail as the wall follower
+    public JunctionSolver() {
+        this(true);
+    }
+
+    // walks every cell if trail is set, or otherwise jumps from node to node without marking anything
+    public JunctionSolver(boolean trail) {
+        this.trail = trail;
+    }
+
+    // walks a graph that has already been built, which can be shared with other solvers over the same layout
+    public JunctionSolver(JunctionGraph graph, boolean trail) {
+        this.graph = graph;
+        this.trail = trail;
+    }
+
+    @Override
+    public void init(Maze maze) {
+        this.maze = maze;
+
+        // a graph built here is kept for as long as the layout it was built from, so starting over is cheap
+        CellStore source = maze.getTopology() != null ? maze.getTopology() : maze.getCells();
+        if (graph == null || (graphSource != null && graphSource != source)) {
+            graph = new JunctionGraph(source);
+            graphSource = source;
+        } else if (graph.getWidth() != maze.getWidth() || graph.getHeight() != maze.getHeight()) {
+            throw new IllegalArgumentException("junction graph of " + graph.getWidth() + "x" + graph.getHeight()
+                    + " does not fit maze of " + maze.getWidth() + "x" + maze.getHeight());
+        }
+
+        routeSize = 0;
+        pathLength = 0;
+        retreating = false;
+
+        node = graph.nodeAt(maze.getActorX(), maze.getActorY());
+        if (node >= 0) takeOver();
+    }
+
+    // picks up from wherever the actor is, reading what has been visited from the maze's marks
+    private void takeOver() {
+        int nodes = graph.getNodeCount();
+        left = new long[(nodes + 63) >>> 6];
+        walked = new long[(nodes * 4 + 63) >>> 6];
+
+        for (int n = 0; n < nodes; n++) {
+            int x = graph.getNodeX(n);
+            int y = graph.getNodeY(n);
+            if (maze.getCell(x, y) != Maze.CELL_PATH) set(left, n);
+
+            for (Direction direction : DIRECTIONS) {
+                if (graph.getLength(n, direction) > 1
+                        && maze.getCell(x + direction.dx, y + direction.dy) != Maze.CELL_PATH) {
+                    set(walked, n * 4 + direction.ordinal());
+                }
+            }
+        }
+
+        face = maze.getFace().ordinal();
+        retreating = maze.getAIMode() == AIMode.RETRACE;
+
+        readRoute();
+    }
+
+    // rebuilds the route from the actor's history, recording the edge slot each step leaves a node by and checking
+    // that the steps after it follow that corridor to the node at its far end
+    //  - if they do not, the route is started over from the node they ended up at instead
+    private void readRoute() {
+        HistoryView history = maze.getHistory();
+        int x = history.getOriginX();
+        int y = history.getOriginY();
+
+        routeSize = 0;
+        pathLength = 0;
+
+        // the edge slot being followed, or -1 before the first node, and the steps taken along it so far
+        int slot = -1;
+        int steps = 0;
+
+        for (int i = 0; i <= history.size(); i++) {
+            int at = graph.nodeAt(x, y);
+
+            if (at >= 0) {
+                if (slot >= 0) {
+                    int from = slot >>> 2;
+                    Direction heading = DIRECTIONS[slot & 3];
+
+                    if (graph.getTarget(from, heading) == at && graph.getLength(from, heading) == steps) {
+                        if (routeSize == route.length) route = Arrays.copyOf(route, routeSize * 2);
+                        route[routeSize++] = slot;
+                        pathLength += steps;
+                    } else {
+                        routeSize = 0;
+                        pathLength = 0;
+                    }
+                }
+
+                if (i < history.size()) slot = at * 4 + history.getDirection(i).ordinal();
+                steps = 0;
+            }
+
+            if (i < history.size()) {
+                Direction direction = history.getDirection(i);
+                x += direction.dx;
+                y += direction.dy;
+                steps++;
+            }
+        }
+    }
+
+    @Override
+    public boolean step() {
+        // partway down a corridor there is only one way to go, so the wall follower takes the actor to the next node
+        if (node < 0) {
+            if (!maze.followWall()) return false;
+
+            node = graph.nodeAt(maze.getActorX(), maze.getActorY());
+            if (node >= 0) takeOver();
+            return true;
+        }
+
+        while (true) {
+            if (!retreating) {
+                int direction = -1;
+                for (int preferred : PREFERENCE[face]) {
+                    if (isUnvisited(node, preferred)) {
+                        direction = preferred;
+                        break;
+                    }
+                }
+
+                if (direction >= 0) {
+                    advance(direction);
+                    return true;
+                }
+
+                // a dead end, so turn around and back out of it
+                face = DIRECTIONS[face].opposite().ordinal();
+                maze.setFace(DIRECTIONS[face]);
+                setRetreating(true);
+            } else {
+                if (routeSize == 0) return false;
+
+                int right = DIRECTIONS[face].clockwise().ordinal();
+                if (isUnvisited(node, right) || isUnvisited(node, face)) {
+                    setRetreating(false);
+                } else {
+                    retreat();
+                    return true;
+                }
+            }
+        }
+    }
+
+    // returns if the way out of a node in the given direction leads somewhere the actor has not been yet
+    private boolean isUnvisited(int from, int direction) {
+        int target = graph.getTarget(from, DIRECTIONS[direction]);
+        if (target < 0) return false;
+
+        // a corridor with no cells in it leads straight onto the next node
+        if (graph.getLength(from, DIRECTIONS[direction]) == 1) return !isSet(left, target);
+
+        return !isSet(walked, from * 4 + direction);
+    }
+
+    // heads down the corridor leaving the current node in the given direction, either all the way to the node at the
+    // far end, or back again if that node has already been left
+    private void advance(int direction) {
+        Direction heading = DIRECTIONS[direction];
+        int target = graph.getTarget(node, heading);
+        int length = graph.getLength(node, heading);
+        Direction arrival = graph.getArrival(node, heading);
+
+        set(walked, node * 4 + direction);
+        set(walked, target * 4 + arrival.opposite().ordinal());
+        set(left, node);
+
+        if (isSet(left, target)) {
+            // walk up to the node, find it visited, and come back
+            if (trail) {
+                walk(direction, length - 1);
+                maze.flip();
+                setRetreating(true);
+                backtrack(length - 1);
+            } else {
+                maze.setFace(heading.opposite());
+                setRetreating(true);
+            }
+
+            face = heading.opposite().ordinal();
+            return;
+        }
+
+        if (trail) {
+            walk(direction, length);
+        } else {
+            maze.setFace(heading);
+            maze.jumpActor(graph.getNodeX(target), graph.getNodeY(target));
+            maze.setFace(arrival);
+        }
+
+        if (routeSize == route.length) route = Arrays.copyOf(route, routeSize * 2);
+        route[routeSize++] = node * 4 + direction;
+        pathLength += length;
+
+        node = target;
+        face = arrival.ordinal();
+    }
+
+    // backs out along the corridor that led to the current node, to the node it came from
+    private void retreat() {
+        int slot = route[--routeSize];
+        int from = slot >>> 2;
+        Direction heading = DIRECTIONS[slot & 3];
+        int length = graph.getLength(from, heading);
+
+        set(left, node);
+
+        if (trail) {
+            backtrack(length);
+        } else {
+            maze.setFace(graph.getArrival(from, heading).opposite());
+            maze.jumpActor(graph.getNodeX(from), graph.getNodeY(from));
+            maze.setFace(heading.opposite());
+        }
+
+        pathLength -= length;
+
+        node = from;
+        face = heading.opposite().ordinal();
+    }
+
+    // walks the actor forward the given number of cells down a corridor, starting off in the given direction
+    private void walk(int direction, int steps) {
+        Direction heading = DIRECTIONS[direction];
+
+        for (int i = 0; i < steps; i++) {
+            if (i > 0) heading = corridorExit(heading);
+
+            maze.setFace(heading);
+            maze.move();
+        }
+    }
+
+    // walks the actor back the given number of cells the way it came
+    private void backtrack(int steps) {
+        HistoryView history = maze.getHistory();
+
+        for (int i = 0; i < steps; i++) {
+            maze.setFace(history.getDirection(history.size() - 1).opposite());
+            maze.move();
+        }
+    }
+
+    // returns the way on out of a corridor cell, which is whichever way is open other than the way back
+    private Direction corridorExit(Direction heading) {
+        int x = maze.getActorX();
+        int y = maze.getActorY();
+
+        for (int preferred : PREFERENCE[heading.ordinal()]) {
+            Direction direction = DIRECTIONS[preferred];
+            if (direction == heading.opposite()) continue;
+
+            int nextX = x + direction.dx;
+            int nextY = y + direction.dy;
+            if (nextX >= 0 && nextY >= 0 && nextX < maze.getWidth() && nextY < maze.getHeight()
+                    && maze.getCell(nextX, nextY) != Maze.CELL_WALL) {
+                return direction;
+            }
+        }
+
+        return heading;
+    }
+
+    private void setRetreating(boolean retreating) {
+        this.retreating = retreating;
+        maze.setAIMode(retreating ? AIMode.RETRACE : AIMode.DEFAULT);
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    // returns the graph being walked
+    public JunctionGraph getGraph() { return graph; }
+
+    // returns the number of cells between the start of the actor's history and the actor, along the way it is being
+    // walked
+    public long getPathLength() { return pathLength; }
+
+    // returns the number of corridors between the start of the actor's history and the actor
+    public int getRouteSize() { return routeSize; }
+}
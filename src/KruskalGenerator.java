@@ -0,0 +1,85 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.SplittableRandom;
+
+/*
+    Randomized Kruskal's algorithm: every wall between two rooms is visited in a random order, and is knocked down
+    whenever the rooms on either side are not yet connected. Connections are tracked with a union-find over room
+    indices in plain arrays, by rank and with path halving. Its mazes have short corridors and a lot of dead-ends.
+ */
+public class KruskalGenerator implements MazeGenerator {
+    // the seed that every maze is generated from
+    private final long seed;
+
+    public KruskalGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void carve(CellStore store, int columns, int rows) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int rooms = columns * rows;
+
+        // every wall between two rooms, as room * 2 for the wall to its east and room * 2 + 1 for the wall to its south
+        int[] walls = new int[(columns - 1) * rows + columns * (rows - 1)];
+        int count = 0;
+        for (int room = 0; room < rooms; room++) {
+            if (room % columns < columns - 1) walls[count++] = room * 2;
+            if (room / columns < rows - 1) walls[count++] = room * 2 + 1;
+        }
+
+        // shuffle the walls so that they are knocked down in a random order
+        for (int i = walls.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int wall = walls[i];
+            walls[i] = walls[j];
+            walls[j] = wall;
+        }
+
+        // the union-find, where each room points at another room in its set, or at itself if it leads the set, and
+        // the rank of each set that keeps its trees shallow
+        int[] parents = new int[rooms];
+        byte[] ranks = new byte[rooms];
+        for (int room = 0; room < rooms; room++) {
+            parents[room] = room;
+        }
+
+        for (int room = 0; room < rooms; room++) {
+            store.set(room % columns * 2 + 1, room / columns * 2 + 1, Maze.CELL_PATH);
+        }
+
+        for (int wall : walls) {
+            int room = wall >>> 1;
+            int next = (wall & 1) == 0 ? room + 1 : room + columns;
+
+            int roomSet = find(parents, room);
+            int nextSet = find(parents, next);
+            if (roomSet == nextSet) continue;
+
+            if (ranks[roomSet] < ranks[nextSet]) {
+                parents[roomSet] = nextSet;
+            } else {
+                parents[nextSet] = roomSet;
+                if (ranks[roomSet] == ranks[nextSet]) ranks[roomSet]++;
+            }
+
+            if ((wall & 1) == 0) {
+                store.set(room % columns * 2 + 2, room / columns * 2 + 1, Maze.CELL_PATH);
+            } else {
+                store.set(room % columns * 2 + 1, room / columns * 2 + 2, Maze.CELL_PATH);
+            }
+        }
+    }
+
+    // returns the room that leads the given room's set, halving the path to it along the way
+    private static int find(int[] parents, int room) {
+        while (parents[room] != room) {
+            parents[room] = parents[parents[room]];
+            room = parents[room];
+        }
+
+        return room;
+    }
+}
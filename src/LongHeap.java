@@ -0,0 +1,74 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A binary min-heap of longs in a growable array, used as the open set of best-first searches. Callers pack their
+    priority into the high bits of each value so that the smallest value is always the most promising one.
+ */
+public class LongHeap {
+    // the heap, with the children of index i at 2i + 1 and 2i + 2
+    private long[] values;
+
+    // the number of values held
+    private int size;
+
+    public LongHeap() {
+        values = new long[16];
+    }
+
+    // adds a value to the heap
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+
+        // sift the value up until its parent is no larger
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= value) break;
+
+            values[i] = values[parent];
+            i = parent;
+        }
+
+        values[i] = value;
+    }
+
+    // removes and returns the smallest value
+    public long remove() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+
+        long smallest = values[0];
+        long last = values[--size];
+
+        // sift the last value down from the root until both of its children are no smaller
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && values[child + 1] < values[child]) child++;
+            if (last <= values[child]) break;
+
+            values[i] = values[child];
+            i = child;
+        }
+
+        values[i] = last;
+
+        return smallest;
+    }
+
+    // returns the number of values in the heap
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // empties the heap while keeping its array
+    public void clear() { size = 0; }
+}
@@ -0,0 +1,153 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    A cell store that lives in a memory-mapped file rather than on the heap, packed two bits to a cell in the same
+    little-endian long layout as PackedCellStore. Cells are indexed with longs, so a store can hold far more than
+    2^31 cells, and marks made while solving are written straight into the file. Opening a store only maps the file,
+    and the operating system pages cells in and out as the actor reaches them.
+
+    A single mapping is limited to 2GB, so the file is mapped as a run of regions of 2^27 longs each.
+ */
+public class MappedCellStore implements CellStore, AutoCloseable {
+    // the number of cells held by each long, and the bits used by each cell
+    private static final int CELLS_PER_WORD = 32;
+    private static final int BITS_PER_CELL = 2;
+    private static final long CELL_MASK = 3L;
+
+    // the number of longs in each mapped region, as a power of two
+    private static final int REGION_SHIFT = 27;
+    private static final long REGION_WORDS = 1L << REGION_SHIFT;
+
+    // the file that the store is mapped from
+    private final FileChannel channel;
+
+    // the mapped regions, and the same regions viewed as longs
+    private final MappedByteBuffer[] mappings;
+    private final LongBuffer[] regions;
+
+    // the width and height of the store
+    private final int width;
+    private final int height;
+
+    // maps a store of the given size from a file, starting at the given byte offset
+    //  - writable stores are written through to the file, and the file is grown to fit if it is too short
+    public MappedCellStore(Path file, long offset, int width, int height, boolean writable) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("maze must be at least 1x1, got " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+
+        channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            long words = wordCount(width, height);
+            if (!writable && channel.size() < offset + words * Long.BYTES) {
+                throw new IOException(file + " is too short for a maze of " + width + "x" + height);
+            }
+
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+            mappings = new MappedByteBuffer[(int) ((words + REGION_WORDS - 1) >>> REGION_SHIFT)];
+            regions = new LongBuffer[mappings.length];
+            for (int i = 0; i < regions.length; i++) {
+                long first = (long) i << REGION_SHIFT;
+                long count = Math.min(REGION_WORDS, words - first);
+
+                mappings[i] = channel.map(mode, offset + first * Long.BYTES, count * Long.BYTES);
+                regions[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    // creates a file holding a store of the given size where every cell is a wall, and maps it
+    public static MappedCellStore create(Path file, int width, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // a freshly grown file reads back as zeroes, which are walls
+            channel.write(ByteBuffer.allocate(1), wordCount(width, height) * Long.BYTES - 1);
+        }
+
+        return new MappedCellStore(file, 0, width, height, true);
+    }
+
+    // returns the number of longs needed to hold a store of the given size
+    static long wordCount(int width, int height) {
+        return ((long) width * height + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    @Override
+    public int getWidth() { return width; }
+
+    @Override
+    public int getHeight() { return height; }
+
+    @Override
+    public int get(int x, int y) {
+        long index = index(x, y);
+        long word = index / CELLS_PER_WORD;
+        int shift = (int) (index & (CELLS_PER_WORD - 1)) * BITS_PER_CELL;
+
+        return (int) ((region(word).get((int) (word & (REGION_WORDS - 1))) >>> shift) & CELL_MASK);
+    }
+
+    @Override
+    public void set(int x, int y, int cell) {
+        long index = index(x, y);
+        long word = index / CELLS_PER_WORD;
+        int shift = (int) (index & (CELLS_PER_WORD - 1)) * BITS_PER_CELL;
+
+        LongBuffer region = region(word);
+        int position = (int) (word & (REGION_WORDS - 1));
+        region.put(position, (region.get(position) & ~(CELL_MASK << shift)) | ((cell & CELL_MASK) << shift));
+    }
+
+    // writes any cells that have changed back to the file
+    public void flush() {
+        if (!channel.isOpen()) {
+            throw new UncheckedIOException(new IOException("store has been closed"));
+        }
+
+        for (MappedByteBuffer mapping : mappings) {
+            if (!mapping.isReadOnly()) mapping.force();
+        }
+    }
+
+    // closes the file, leaving the mapping to be released once it is no longer reachable
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // returns the region holding the given word
+    private LongBuffer region(long word) {
+        return regions[(int) (word >>> REGION_SHIFT)];
+    }
+
+    // turns a point into a flat cell index, failing the same way an array would when the point is out of bounds
+    private long index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is outside of " + width + "x" + height);
+        }
+
+        return (long) y * width + x;
+    }
+}
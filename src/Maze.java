@@ -2,7 +2,7 @@
 // by Alexandria Carlson and Christian Byrne
 // 11/29/2017
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Created by chrx on 11/13/17.
@@ -18,17 +18,18 @@ public class Maze {
     public static final int CELL_VISITED = 2;
     public static final int CELL_BAD = 3;
 
-    // a chronology of the actor's past positions, used when backtracing
-    private ArrayList<ActorPosition> actorHistory;
+    // a chronology of the actor's past positions, used when backtracing, and the view of it handed out
+    private final ActorHistory actorHistory;
+    private final HistoryView historyView;
 
-    // the two-dimensional array of cells that makes up the maze
-    private int[][] maze;
+    // the cells that make up the maze
+    private CellStore cells;
 
     // the width and height of the maze
     private int width;
     private int height;
 
-    // the actor's position
+    // the actor's position, which is moved to the start point once it is found
     private int x = 2, y = 0;
 
     // the start point of the maze
@@ -40,6 +41,12 @@ public class Maze {
     // whether the maze is completely traversed
     private boolean complete;
 
+    // whether the actor has retraced all the way back to where it started without finding the exit
+    private boolean stuck;
+
+    // the number of steps taken between looks at the clock when stepping until a deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
     // the direction that the actor is facing
     private Direction face = Direction.SOUTH;
 
@@ -49,107 +56,242 @@ public class Maze {
     //  -- BACKTRACE goes backwards in the order that preceded the current position
     private AIMode aiMode = AIMode.DEFAULT;
 
-    // constructs the maze
+    // draws the maze to the console, a whole frame at a time
+    private ConsoleRenderer renderer = new ConsoleRenderer(ConsoleRenderer.Mode.FULL);
+
+    // the strategy that decides where the actor goes next, which is the wall follower unless told otherwise
+    private MazeSolver solver;
+
+    // the layout the maze is solved over, or null if the trail is marked directly in the cells
+    private final MazeTopology topology;
+
+    // whether the first step has been taken
+    private boolean started;
+
+    // everyone listening for steps, kept as an array so that having none costs a single length check
+    private StepListener[] listeners = new StepListener[0];
+
+    // constructs the maze over a two-dimensional array of cells, indexed as maze[y][x]
     public Maze(int[][] maze) {
-        this.maze = maze;
+        this(new ArrayCellStore(maze));
+    }
+
+    // constructs the maze over the given cell store, marking the trail in the store itself
+    public Maze(CellStore cells) {
+        this(cells, null, MazeTopology.findEndpoints(cells));
+    }
 
-        actorHistory = new ArrayList<>();
+    // constructs the maze over the given cell store with the given start and end points, rather than finding them
+    // around the border
+    //  - either point can be -1, -1 if the maze has none
+    //  - throws IllegalArgumentException if a point is outside of the maze or on a wall
+    public Maze(CellStore cells, int startX, int startY, int endX, int endY) {
+        this(cells, null, MazeTopology.checkEndpoints(cells, startX, startY, endX, endY));
+    }
 
-        width = maze[0].length;
-        height = maze.length;
+    // constructs the maze over a shared topology, keeping the trail in an overlay of its own so that the topology is
+    // left untouched and the maze can be reset
+    public Maze(MazeTopology topology) {
+        this(new OverlayCellStore(topology), topology, new int[] {
+                topology.getStartX(), topology.getStartY(), topology.getEndX(), topology.getEndY()});
+    }
 
-        findEndpoints();
+    private Maze(CellStore cells, MazeTopology topology, int[] endpoints) {
+        this.cells = cells;
+        this.topology = topology;
+
+        actorHistory = new ActorHistory();
+        historyView = actorHistory.readOnlyView();
+
+        width = cells.getWidth();
+        height = cells.getHeight();
+
+        startX = endpoints[0];
+        startY = endpoints[1];
+        endX = endpoints[2];
+        endY = endpoints[3];
+
+        // start the actor off at the start of the maze, if it has one
+        if (startX >= 0) {
+            x = startX;
+            y = startY;
+        }
 
         complete = false;
+
+        setSolver(new WallFollowerSolver());
     }
 
+    // finds the start and end points as the first two openings around the border of the maze
+    //  - any cell that is not a wall counts, so that a maze loaded with its trail already marked is still found
     public void findEndpoints() {
-        startX = -1;
-        startY = -1;
-        endX = -1;
-        endY = -1;
-
-        // starting top-left, going right
-        for (int x = 0; x < getWidth() && startX < 0; x++) {
-            if (getCell(x, 0) == Maze.CELL_PATH) {
-                startX = x;
-                startY = 0;
-            }
+        int[] endpoints = MazeTopology.findEndpoints(cells);
+        startX = endpoints[0];
+        startY = endpoints[1];
+        endX = endpoints[2];
+        endY = endpoints[3];
+    }
+
+    // starts the solve over from the beginning, clearing the trail and the actor's history
+    //  - only a maze over a topology can be reset, since any other maze has marked its cells in place
+    //  - costs as much as the cells marked since the last reset, however big the maze is
+    public void reset() {
+        if (topology == null) {
+            throw new IllegalStateException("only a maze built over a topology can be reset");
         }
 
-        // starting top-left, going down
-        for (int y = 1; y < getHeight() && (startY >= 0) ? (endY < 0) : (startY < 0); y++) {
-            if (startY < 0 && getCell(0, y) == Maze.CELL_PATH) {
-                startX = 0;
-                startY = y;
-            } else if (getCell(0, y) == Maze.CELL_PATH) {
-                endX = 0;
-                endY = y;
-            }
+        // tell anyone listening about every mark that is about to go, before it goes
+        if (listeners.length != 0) {
+            OverlayCellStore overlay = (OverlayCellStore) cells;
+            overlay.forEachMarked((markX, markY) -> {
+                int mark = overlay.get(markX, markY);
+                int cell = topology.get(markX, markY);
+                if (mark != cell) {
+                    for (StepListener listener : listeners) listener.cellChanged(this, markX, markY, mark, cell);
+                }
+            });
         }
 
-        // starting bottom-left, going right
-        for (int x = 1; x < getWidth() && (startX >= 0) ? (endX < 0) : (startX < 0); x++) {
-            if (startY < 0 && getCell(x, getHeight()-1) == Maze.CELL_PATH) {
-                startX = x;
-                startY = getHeight() - 1;
-            } else if (getCell(x, getHeight()-1) == Maze.CELL_PATH) {
-                endX = x;
-                endY = getHeight()-1;
-            }
+        ((OverlayCellStore) cells).clear();
+        actorHistory.clear();
+
+        int lastX = x, lastY = y;
+        if (startX >= 0) {
+            x = startX;
+            y = startY;
         }
 
-        // starting top-right, going down
-        for (int y = 1; y < getHeight() && (startY >= 0) ? (endY < 0) : (startY < 0); y++) {
-            if (startY < 0 && getCell(getWidth()-1, y) == Maze.CELL_PATH) {
-                startX = getWidth()-1;
-                startY = y;
-            } else if (getCell(getWidth()-1, y) == Maze.CELL_PATH) {
-                endX = getWidth()-1;
-                endY = y;
-            }
+        if (x != lastX || y != lastY) {
+            for (StepListener listener : listeners) listener.actorMoved(this, lastX, lastY, x, y);
         }
+
+        setFace(Direction.SOUTH);
+
+        complete = false;
+        stuck = false;
+        started = false;
+
+        setSolver(solver);
+    }
+
+    // returns the layout the maze is solved over, or null if it was built directly over its cells
+    public MazeTopology getTopology() { return topology; }
+
+    // returns if the first step has been taken since the maze was made or reset
+    public boolean isStarted() { return started; }
+
+    // puts the actor where an earlier solve of the same maze left it or had gotten to, along with its history, without
+    // stepping
+    //  - the history is packed as ActorHistory packs it, and the trail is marked beforehand with markCell
+    void restoreSolve(int actorX, int actorY, Direction face, long[] historyWords, int historySize,
+                      boolean complete, boolean stuck) {
+        actorHistory.restore(historyWords, historySize, startX, startY);
+
+        jumpActor(actorX, actorY);
+        setFace(face);
+        setAIMode(AIMode.DEFAULT);
+
+        this.started = true;
+        this.complete = complete;
+        this.stuck = stuck;
+    }
+
+    // sets whether the maze has been started and how it finished, used when a solve is played back rather than solved
+    void setSolveState(boolean started, boolean complete, boolean stuck) {
+        this.started = started;
+        this.complete = complete;
+        this.stuck = stuck;
     }
 
     // displays the current state of the maze in the console output
     public void displayMaze() {
-        for (int i = 0; i < maze.length; i++) {
-            for (int j = 0; j < maze[i].length; j++) {
-                if (j == x && i == y) {
-                    System.out.print("@");
-                } else {
-                    switch (maze[i][j]) {
-                        case CELL_WALL:
-                            System.out.print("#");
-                            break;
-                        case CELL_PATH:
-                            System.out.print(" ");
-                            break;
-                        case CELL_VISITED:
-                            System.out.print("~");
-                            break;
-                        case CELL_BAD:
-                            System.out.print(" ");
-                            break;
-                    }
-                }
-            }
-            System.out.println();
-        }
-        System.out.println();
+        renderer.render(this);
     }
 
+    // returns the renderer that displays the maze
+    public ConsoleRenderer getRenderer() { return renderer; }
+
+    // sets the renderer that displays the maze
+    public void setRenderer(ConsoleRenderer renderer) { this.renderer = renderer; }
+
     // makes the actor take a step in the direction that it is facing
     public void takeStep(boolean display) {
-        if (!complete) {
+        if (!isFinished()) {
+            advance();
+
+            // displays maze ONLY if the display flag is checked
+            if (display) displayMaze();
+        }
+    }
+
+    // takes up to n steps without displaying them, stopping early once the maze is finished
+    public StepResult stepN(int n) {
+        int steps = 0;
+        while (steps < n && advance()) {
+            steps++;
+        }
+
+        return new StepResult(steps, complete, stuck);
+    }
+
+    // takes steps without displaying them until the maze is finished or System.nanoTime() passes the deadline
+    public StepResult stepUntil(long deadlineNanos) {
+        int steps = 0;
+        while (!isFinished() && System.nanoTime() - deadlineNanos < 0) {
+            // only look at the clock once per batch, as reading it costs more than a step
+            for (int i = 0; i < DEADLINE_CHECK_INTERVAL && advance(); i++) {
+                steps++;
+            }
+        }
+
+        return new StepResult(steps, complete, stuck);
+    }
+
+    // takes steps until the maze is finished, then displays the results
+    public void findExit() {
+        while (advance()) {
+            // keep stepping
+        }
+
+        displayMaze();
+    }
+
+    // moves the actor by a single cell using the current solver
+    // returns false without moving if the maze is already finished or the actor turns out to be stuck
+    private boolean advance() {
+        if (isFinished()) return false;
+
+        if (!started) {
+            started = true;
+            for (StepListener listener : listeners) listener.solveStarted(this);
+        }
+
+        boolean moved = solver.step();
+        if (!moved) stuck = true;
+
+        if (x == endX && y == endY) complete = true;
+
+        if (listeners.length != 0) {
+            for (StepListener listener : listeners) {
+                if (moved) listener.stepTaken(this);
+                if (isFinished()) listener.solveFinished(this);
+            }
+        }
+
+        return moved;
+    }
+
+    // moves the actor by a single cell with its right hand on the wall, switching between DEFAULT and RETRACE as
+    // many times as that takes
+    // returns false without moving if the actor is back where it started with nowhere left to go
+    boolean followWall() {
+        while (true) {
             switch (aiMode) {
                 // the actor is not in a dead-end, and is navigating normally
                 case DEFAULT:
                     if (isDeadEnd()) {
                         flip();
-                        aiMode = AIMode.RETRACE;
-                        takeStep(false);
-                        break;
+                        setAIMode(AIMode.RETRACE);
                     } else {
                         if (checkRight() != CELL_PATH) {
                             while (checkFront() != CELL_PATH) {
@@ -158,236 +300,224 @@ public class Maze {
                         } else turn();
 
                         move();
+                        return true;
                     }
 
                     break;
 
                 // the actor was caught in a dead-end, and is tracing its steps back until it finds an opening
                 case RETRACE:
-                    ActorPosition lastPosition = actorHistory.get(actorHistory.size() - 1);
-
-                    if (checkRight() != CELL_PATH && checkFront() != CELL_PATH) {
-                        if (lastPosition.getX() != x) {
-                            if (lastPosition.getX() > x) face = Direction.EAST;
-                            else face = Direction.WEST;
-                        } else {
-                            if (lastPosition.getY() > y) face = Direction.SOUTH;
-                            else face = Direction.NORTH;
-                        }
+                    if (actorHistory.isEmpty()) {
+                        return false;
+                    } else if (checkRight() != CELL_PATH && checkFront() != CELL_PATH) {
+                        // face back towards the position that the last step was taken from
+                        setFace(actorHistory.peek().opposite());
 
                         move();
+                        return true;
                     } else {
-                        aiMode = AIMode.DEFAULT;
-                        takeStep(false);
+                        setAIMode(AIMode.DEFAULT);
                     }
-            }
 
-            if (x == endX && y == endY) complete = true;
-
-            // displays maze ONLY if the display flag is checked
-            if (display) displayMaze();
-        }
-    }
-
-    // takes steps until the maze is finished, then displays the results
-    public void findExit() {
-        while (!complete) {
-            takeStep(false);
+                    break;
+            }
         }
-
-        displayMaze();
     }
 
-
     // checks if actor is in a dead end
     // returns true if it is
     public boolean isDeadEnd() {
-        boolean end = false;
-        int openings = 0;
-        for (int i = 0; i < 4; i++) {
-            if (checkFront() == 1) {
-                openings++;
-            }
-            turn();
-        }
-
-        if (openings == 0)
-            end = true;
-
-        return end;
+        return probe(x, y - 1) != CELL_PATH && probe(x, y + 1) != CELL_PATH
+                && probe(x + 1, y) != CELL_PATH && probe(x - 1, y) != CELL_PATH;
     }
 
     // checks the front side that the actor is facing
-    public int checkFront() {
-        int front = 0;
-        try {
-            switch (face) {
-                case NORTH:
-                    front = maze[y - 1][x];
-                    break;
-                case SOUTH:
-                    front = maze[y + 1][x];
-                    break;
-                case EAST:
-                    front = maze[y][x + 1];
-                    break;
-                case WEST:
-                    front = maze[y][x - 1];
-                    break;
-            }
-        } catch (ArrayIndexOutOfBoundsException Ex) {
-            return 0;
-        }
-
-        return front;
-    }
+    public int checkFront() { return probe(x + face.dx, y + face.dy); }
 
     // checks the left side that the actor is facing
     public int checkLeft() {
-        int left = 0;
-        try {
-            switch (face) {
-                case NORTH:
-                    left = maze[y][x - 1];
-                    break;
-                case SOUTH:
-                    left = maze[y][x + 1];
-                    break;
-                case EAST:
-                    left = maze[y - 1][x];
-                    break;
-                case WEST:
-                    left = maze[y + 1][x];
-                    break;
-            }
-        } catch (ArrayIndexOutOfBoundsException Ex) {
-            return 0;
-        }
-
-        return left;
+        Direction left = face.counterClockwise();
+        return probe(x + left.dx, y + left.dy);
     }
 
     // checks the right side that the actor is facing
     public int checkRight() {
-        int right = 0;
-        try {
-            switch (face) {
-                case NORTH:
-                    right = maze[y][x + 1];
-                    break;
-                case SOUTH:
-                    right = maze[y][x - 1];
-                    break;
-                case EAST:
-                    right = maze[y + 1][x];
-                    break;
-                case WEST:
-                    right = maze[y - 1][x];
-                    break;
-            }
-        } catch (ArrayIndexOutOfBoundsException Ex) {
-            return 0;
-        }
+        Direction right = face.clockwise();
+        return probe(x + right.dx, y + right.dy);
+    }
+
+    // returns the cell at a given point, treating everything outside of the maze as a wall
+    private int probe(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return CELL_WALL;
 
-        return right;
+        return cells.get(x, y);
     }
 
     // turns the actor in a clockwise fashion
-    public void turn() {
-        switch (face) {
-            case NORTH:
-                face = Direction.EAST;
-                break;
-            case SOUTH:
-                face = Direction.WEST;
-                break;
-            case EAST:
-                face = Direction.SOUTH;
-                break;
-            case WEST:
-                face = Direction.NORTH;
-                break;
-        }
-    }
+    public void turn() { setFace(face.clockwise()); }
 
     // turns the actor counter-clockwise
-    public void turnCCW() {
-        switch (face) {
-            case NORTH:
-                face = Direction.WEST;
-                break;
-            case SOUTH:
-                face = Direction.EAST;
-                break;
-            case EAST:
-                face = Direction.NORTH;
-                break;
-            case WEST:
-                face = Direction.SOUTH;
-                break;
-        }
-    }
+    public void turnCCW() { setFace(face.counterClockwise()); }
 
     public void move() {
+        // the cell is only looked at beforehand if someone is listening for it to change
+        int lastX = x, lastY = y;
+        int lastCell = listeners.length != 0 ? cells.get(x, y) : CELL_PATH;
+        int mark = CELL_VISITED;
+
         // places trail for path and counts steps since last turn
         switch (aiMode) {
             case DEFAULT:
-                maze[y][x] = 2;
-                actorHistory.add(new ActorPosition(x, y));
+                mark = CELL_VISITED;
+                actorHistory.push(x, y, face);
                 break;
             case RETRACE:
-                maze[y][x] = 3;
-                actorHistory.remove(actorHistory.size()-1);
+                mark = CELL_BAD;
+                actorHistory.pop();
                 break;
         }
 
+        cells.set(x, y, mark);
+
         // sets player position forward
-        switch (face) {
-            case NORTH:
-                y--;
-                break;
-            case SOUTH:
-                y++;
-                break;
-            case EAST:
-                x++;
-                break;
-            case WEST:
-                x--;
-                break;
+        x += face.dx;
+        y += face.dy;
+
+        if (listeners.length != 0) {
+            for (StepListener listener : listeners) {
+                if (lastCell != mark) listener.cellChanged(this, lastX, lastY, lastCell, mark);
+                listener.actorMoved(this, lastX, lastY, x, y);
+            }
         }
     }
 
-    // flips the actor position, or rotates by 180 degrees
-    public void flip() {
-        switch (face) {
-            case NORTH:
-                face = Direction.SOUTH;
-                break;
-            case SOUTH:
-                face = Direction.NORTH;
-                break;
-            case EAST:
-                face = Direction.WEST;
-                break;
-            case WEST:
-                face = Direction.EAST;
-                break;
+    // takes back a move made in the given direction and mode, putting the cell it was made from back the way it was,
+    // used to play a recorded solve backwards
+    void unmove(Direction direction, AIMode mode, int oldCell) {
+        int lastX = x, lastY = y;
+        x -= direction.dx;
+        y -= direction.dy;
+
+        // a move forwards pushed a step onto the history, and a move while retracing popped off the step it retraced
+        if (mode == AIMode.DEFAULT) {
+            actorHistory.pop();
+        } else {
+            actorHistory.push(lastX, lastY, direction.opposite());
+        }
+
+        int mark = listeners.length != 0 ? cells.get(x, y) : oldCell;
+        cells.set(x, y, oldCell);
+
+        if (listeners.length != 0) {
+            for (StepListener listener : listeners) {
+                if (mark != oldCell) listener.cellChanged(this, x, y, mark, oldCell);
+                listener.actorMoved(this, lastX, lastY, x, y);
+            }
         }
     }
 
+    // flips the actor position, or rotates by 180 degrees
+    public void flip() { setFace(face.opposite()); }
+
     // returns if the maze is complete
     public boolean isComplete() { return complete; }
 
+    // returns if the actor has run out of places to go without reaching the end
+    public boolean isStuck() { return stuck; }
+
+    // returns if no more steps can be taken, either because the maze is complete or because the actor is stuck
+    public boolean isFinished() { return complete || stuck; }
+
     // returns the direction that the actor is facing
     public Direction getFace() { return face; }
 
+    // sets the direction that the actor is facing
+    public void setFace(Direction face) {
+        if (face == this.face) return;
+
+        this.face = face;
+        for (StepListener listener : listeners) listener.actorTurned(this, face);
+    }
+
+    // returns the current algorithm that is being used to navigate the maze
+    public AIMode getAIMode() { return aiMode; }
+
+    // switches between DEFAULT and RETRACE, used by solvers that back out of dead ends on their own
+    void setAIMode(AIMode aiMode) {
+        if (aiMode == this.aiMode) return;
+
+        this.aiMode = aiMode;
+        for (StepListener listener : listeners) listener.modeChanged(this, aiMode);
+    }
+
+    // adds a listener that hears about every move, turn, mode change and cell change from now on
+    public void addStepListener(StepListener listener) {
+        StepListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    // removes a listener that was added before
+    public void removeStepListener(StepListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                StepListener[] removed = new StepListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, removed, 0, i);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                listeners = removed;
+                return;
+            }
+        }
+    }
+
+    // returns the start and end points of the maze, which are -1 if none were found
+    public int getStartX() { return startX; }
+    public int getStartY() { return startY; }
+    public int getEndX() { return endX; }
+    public int getEndY() { return endY; }
+
+    // returns the strategy used to navigate the maze
+    public MazeSolver getSolver() { return solver; }
+
+    // sets the strategy used to navigate the maze, which carries on from wherever the actor currently is
+    public void setSolver(MazeSolver solver) {
+        this.solver = solver;
+
+        // every solver starts off moving forwards, and only the ones that back out of dead ends ever leave DEFAULT
+        setAIMode(AIMode.DEFAULT);
+
+        solver.init(this);
+    }
+
     // returns the width and height of the maze
     public int getWidth() { return width; }
     public int getHeight() { return height; }
 
     // returns a cell at a given point in the maze
-    public int getCell(int x, int y) { return maze[y][x]; }
+    public int getCell(int x, int y) { return cells.get(x, y); }
+
+    // returns the store that holds the maze's cells
+    CellStore getCells() { return cells; }
+
+    // marks a cell at a given point in the maze, used by solvers that mark cells other than the actor's own
+    void markCell(int x, int y, int cell) {
+        int lastCell = listeners.length != 0 ? cells.get(x, y) : cell;
+        cells.set(x, y, cell);
+
+        if (lastCell != cell) {
+            for (StepListener listener : listeners) listener.cellChanged(this, x, y, lastCell, cell);
+        }
+    }
+
+    // moves the actor straight to a given point without marking the cells in between, used by solvers that skip over
+    // whole corridors at once
+    void jumpActor(int toX, int toY) {
+        int lastX = x, lastY = y;
+        x = toX;
+        y = toY;
+
+        for (StepListener listener : listeners) listener.actorMoved(this, lastX, lastY, x, y);
+    }
 
     // returns the actor's x and y coordinates
     public int getActorX() { return x; }
@@ -397,22 +527,9 @@ public class Maze {
     public void setActorX(int x) { this.x = x; }
     public void setActorY(int y) { this.y = y; }
 
-    // a class that contains the actor's position, used for storing position history
-    public class ActorPosition {
-        private int x, y;
+    // returns a read-only view of the actor's history, which stays live as the actor moves
+    public HistoryView getHistory() { return historyView; }
 
-        public ActorPosition(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        public int getX() { return x; };
-        public int getY() { return y; };
-    }
+    // returns a copy of the actor's history, packed as ActorHistory packs it
+    long[] copyHistoryWords() { return actorHistory.copyWords(); }
 }
-enum Direction {NORTH, SOUTH, EAST, WEST}
-
-/*
-    Two AI modes: default and retrace
- */
-enum AIMode {DEFAULT, RETRACE}
\ No newline at end of file
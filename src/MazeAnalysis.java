@@ -0,0 +1,398 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    A look over a whole maze before it is solved: how its open cells fall into connected regions, how many dead ends,
+    junctions and loops it has, and whether the start and end are in the same region at all. A maze whose start and
+    end are not connected can be turned away without spending any time trying to solve it.
+
+    The regions are found with a union-find that runs on every core. The maze is split into square tiles, and each
+    tile labels its own regions on a ForkJoinPool, keeping only the labels along its four edges and how big each
+    region is. The tiles' regions are then joined wherever they meet across an edge, which only touches the cells
+    along the edges, so the labelling costs memory in proportion to the tiles rather than to the cells.
+
+    The loops are counted as the number of independent cycles through the open cells, which is the number of pairs
+    of open cells next to each other, less the open cells, plus the regions. A perfect maze has none.
+ */
+public class MazeAnalysis {
+    // the width and height of each tile, in cells
+    private static final int TILE_SIZE = 256;
+
+    // each worker's scratch space for labelling a tile, so that tiles do not each allocate their own
+    private static final ThreadLocal<int[][]> SCRATCH =
+            ThreadLocal.withInitial(() -> new int[3][TILE_SIZE * TILE_SIZE]);
+
+    // the width and height of the maze
+    private final int width;
+    private final int height;
+
+    // the start and end points, or -1 if there is no opening for them
+    private final int startX, startY;
+    private final int endX, endY;
+
+    // the totals over the whole maze
+    private long openCells;
+    private long adjacentPairs;
+    private long deadEnds;
+    private long junctions;
+    private long isolated;
+    private long components;
+    private long largestComponent;
+
+    // whether the start and end are in the same region, and the size of the region the start is in
+    private boolean connected;
+    private long startComponent;
+
+    // the labelling of a single tile
+    private static class Tile {
+        // the number of regions in the tile, and the number of cells in each
+        int regions;
+        int[] sizes;
+
+        // the region of each cell along the tile's edges, or -1 for a wall, from left to right or top to bottom
+        int[] top, bottom, left, right;
+
+        // the totals over the tile
+        long open, pairs, deadEnds, junctions, isolated;
+
+        // the regions of the start and end, if they are in this tile, or -1
+        int startRegion = -1, endRegion = -1;
+    }
+
+    // analyses the given cells on the common pool
+    public MazeAnalysis(CellStore cells) {
+        this(cells, ForkJoinPool.commonPool());
+    }
+
+    // analyses the given cells on the given pool, treating any cell that is not a wall as open
+    public MazeAnalysis(CellStore cells, ForkJoinPool pool) {
+        this(cells, MazeTopology.findEndpoints(cells), pool);
+    }
+
+    // analyses the given cells on the common pool with the given start and end points, rather than finding them
+    // around the border
+    //  - either point can be -1, -1 if the maze has none
+    //  - throws IllegalArgumentException if a point is outside of the maze or on a wall
+    public MazeAnalysis(CellStore cells, int startX, int startY, int endX, int endY) {
+        this(cells, startX, startY, endX, endY, ForkJoinPool.commonPool());
+    }
+
+    // analyses the given cells on the given pool with the given start and end points
+    public MazeAnalysis(CellStore cells, int startX, int startY, int endX, int endY, ForkJoinPool pool) {
+        this(cells, MazeTopology.checkEndpoints(cells, startX, startY, endX, endY), pool);
+    }
+
+    private MazeAnalysis(CellStore cells, int[] endpoints, ForkJoinPool pool) {
+        width = cells.getWidth();
+        height = cells.getHeight();
+
+        startX = endpoints[0];
+        startY = endpoints[1];
+        endX = endpoints[2];
+        endY = endpoints[3];
+
+        int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+        Tile[] tiles = new Tile[tilesAcross * tilesDown];
+
+        pool.invoke(new TileTask(cells, tiles, tilesAcross, 0, tiles.length));
+
+        // give each tile's regions a range of numbers of their own, and add up the tiles
+        int[] base = new int[tiles.length];
+        long total = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            Tile tile = tiles[i];
+            if (total + tile.regions > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("maze of " + width + "x" + height + " has too many regions");
+            }
+
+            base[i] = (int) total;
+            total += tile.regions;
+
+            openCells += tile.open;
+            adjacentPairs += tile.pairs;
+            deadEnds += tile.deadEnds;
+            junctions += tile.junctions;
+            isolated += tile.isolated;
+        }
+
+        int[] parent = new int[(int) total];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+
+        // join the regions that meet across the edges between tiles
+        for (int tileY = 0; tileY < tilesDown; tileY++) {
+            for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                int i = tileY * tilesAcross + tileX;
+
+                if (tileX + 1 < tilesAcross) {
+                    join(parent, tiles[i].right, base[i], tiles[i + 1].left, base[i + 1]);
+                }
+
+                if (tileY + 1 < tilesDown) {
+                    join(parent, tiles[i].bottom, base[i], tiles[i + tilesAcross].top, base[i + tilesAcross]);
+                }
+            }
+        }
+
+        // count the regions that are left once they are joined, adding each region's cells onto the one it joined
+        long[] sizes = new long[parent.length];
+        for (int i = 0; i < tiles.length; i++) {
+            for (int region = 0; region < tiles[i].regions; region++) {
+                sizes[find(parent, base[i] + region)] += tiles[i].sizes[region];
+            }
+        }
+
+        for (int region = 0; region < parent.length; region++) {
+            if (parent[region] == region) {
+                components++;
+                largestComponent = Math.max(largestComponent, sizes[region]);
+            }
+        }
+
+        int start = regionOf(tiles, base, parent, tilesAcross, startX, startY, true);
+        int end = regionOf(tiles, base, parent, tilesAcross, endX, endY, false);
+        connected = start >= 0 && start == end;
+        startComponent = start >= 0 ? sizes[start] : 0;
+    }
+
+    // returns the joined region of the start or end, or -1 if the maze has no opening for it
+    private static int regionOf(Tile[] tiles, int[] base, int[] parent, int tilesAcross, int x, int y,
+                                boolean start) {
+        if (x < 0) return -1;
+
+        int i = (y / TILE_SIZE) * tilesAcross + x / TILE_SIZE;
+        int region = start ? tiles[i].startRegion : tiles[i].endRegion;
+
+        return find(parent, base[i] + region);
+    }
+
+    // joins the regions on either side of an edge between two tiles wherever both cells are open
+    private static void join(int[] parent, int[] edge, int edgeBase, int[] other, int otherBase) {
+        for (int i = 0; i < edge.length; i++) {
+            if (edge[i] >= 0 && other[i] >= 0) union(parent, edgeBase + edge[i], otherBase + other[i]);
+        }
+    }
+
+    // returns the root of a region, halving the path to it along the way
+    private static int find(int[] parent, int region) {
+        while (parent[region] != region) {
+            parent[region] = parent[parent[region]];
+            region = parent[region];
+        }
+
+        return region;
+    }
+
+    // joins two regions, keeping the lower root, so that a region's root is always the first of its numbers
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    // labels a range of tiles, halving it until there is a single tile left
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CellStore cells;
+        private final Tile[] tiles;
+        private final int tilesAcross;
+        private final int from, to;
+
+        TileTask(CellStore cells, Tile[] tiles, int tilesAcross, int from, int to) {
+            this.cells = cells;
+            this.tiles = tiles;
+            this.tilesAcross = tilesAcross;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(cells, tiles, tilesAcross, from, middle),
+                        new TileTask(cells, tiles, tilesAcross, middle, to));
+                return;
+            }
+
+            tiles[from] = label((from % tilesAcross) * TILE_SIZE, (from / tilesAcross) * TILE_SIZE);
+        }
+
+        // labels the tile with its top left corner at the given point
+        private Tile label(int originX, int originY) {
+            int tileWidth = Math.min(TILE_SIZE, width - originX);
+            int tileHeight = Math.min(TILE_SIZE, height - originY);
+
+            int[][] scratch = SCRATCH.get();
+            int[] regions = scratch[0];
+            int[] equivalent = scratch[1];
+            int[] numbers = scratch[2];
+
+            Tile tile = new Tile();
+
+            // give every open cell the label of the open cell to the left of it or above it, or a new label if it has
+            // neither, noting whenever the two labels turn out to be the same region
+            //  - a wall is labelled -1
+            int labels = 0;
+            for (int y = 0; y < tileHeight; y++) {
+                for (int x = 0; x < tileWidth; x++) {
+                    int i = y * tileWidth + x;
+
+                    if (cells.get(originX + x, originY + y) == Maze.CELL_WALL) {
+                        regions[i] = -1;
+                        continue;
+                    }
+
+                    int left = x > 0 ? regions[i - 1] : -1;
+                    int up = y > 0 ? regions[i - tileWidth] : -1;
+
+                    if (left >= 0) {
+                        regions[i] = left;
+                        if (up >= 0 && up != left) union(equivalent, up, left);
+                    } else if (up >= 0) {
+                        regions[i] = up;
+                    } else {
+                        equivalent[labels] = labels;
+                        regions[i] = labels++;
+                    }
+                }
+            }
+
+            // number the regions in the order their first labels were handed out
+            //  - a label's root always comes before it, so it has already been numbered
+            int count = 0;
+            for (int label = 0; label < labels; label++) {
+                int root = find(equivalent, label);
+                numbers[label] = root == label ? count++ : numbers[root];
+            }
+
+            tile.regions = count;
+            tile.sizes = new int[count];
+
+            // swap each label for its region's number, and count the cells in each region and around each open cell
+            for (int y = 0; y < tileHeight; y++) {
+                for (int x = 0; x < tileWidth; x++) {
+                    int i = y * tileWidth + x;
+                    if (regions[i] < 0) continue;
+
+                    regions[i] = numbers[regions[i]];
+                    tile.sizes[regions[i]]++;
+
+                    // a pair is counted from its left or top cell, so that each is counted once
+                    boolean up = y > 0 ? regions[i - tileWidth] >= 0 : isOpen(originX + x, originY + y - 1);
+                    boolean left = x > 0 ? regions[i - 1] >= 0 : isOpen(originX + x - 1, originY + y);
+                    boolean down = y + 1 < tileHeight ? regions[i + tileWidth] >= 0
+                            : isOpen(originX + x, originY + y + 1);
+                    boolean right = x + 1 < tileWidth ? regions[i + 1] >= 0 : isOpen(originX + x + 1, originY + y);
+
+                    int neighbours = (up ? 1 : 0) + (left ? 1 : 0) + (down ? 1 : 0) + (right ? 1 : 0);
+                    if (neighbours == 0) tile.isolated++;
+                    if (neighbours == 1) tile.deadEnds++;
+                    if (neighbours >= 3) tile.junctions++;
+                    if (down) tile.pairs++;
+                    if (right) tile.pairs++;
+                    tile.open++;
+                }
+            }
+
+            tile.top = new int[tileWidth];
+            tile.bottom = new int[tileWidth];
+            for (int x = 0; x < tileWidth; x++) {
+                tile.top[x] = regions[x];
+
+                int i = (tileHeight - 1) * tileWidth + x;
+                tile.bottom[x] = regions[i];
+            }
+
+            tile.left = new int[tileHeight];
+            tile.right = new int[tileHeight];
+            for (int y = 0; y < tileHeight; y++) {
+                int i = y * tileWidth;
+                tile.left[y] = regions[i];
+
+                i += tileWidth - 1;
+                tile.right[y] = regions[i];
+            }
+
+            if (contains(originX, originY, tileWidth, tileHeight, startX, startY)) {
+                tile.startRegion = regions[(startY - originY) * tileWidth + startX - originX];
+            }
+
+            if (contains(originX, originY, tileWidth, tileHeight, endX, endY)) {
+                tile.endRegion = regions[(endY - originY) * tileWidth + endX - originX];
+            }
+
+            return tile;
+        }
+
+        // returns if a point is inside the maze and not a wall
+        private boolean isOpen(int x, int y) {
+            return x >= 0 && y >= 0 && x < width && y < height && cells.get(x, y) != Maze.CELL_WALL;
+        }
+    }
+
+    // returns if a point is inside the tile with its top left corner at the given origin
+    private static boolean contains(int originX, int originY, int tileWidth, int tileHeight, int x, int y) {
+        return x >= originX && y >= originY && x < originX + tileWidth && y < originY + tileHeight;
+    }
+
+    // returns the width and height of the maze
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // returns the number of open cells
+    public long getOpenCells() { return openCells; }
+
+    // returns the number of connected regions of open cells, and the number of cells in the biggest one
+    public long getComponentCount() { return components; }
+    public long getLargestComponent() { return largestComponent; }
+
+    // returns the number of open cells with a single open neighbour, which includes the start and end if they
+    // have one way in
+    public long getDeadEnds() { return deadEnds; }
+
+    // returns the number of open cells with three or four open neighbours
+    public long getJunctions() { return junctions; }
+
+    // returns the number of open cells with no open neighbours at all
+    public long getIsolatedCells() { return isolated; }
+
+    // returns the number of independent loops through the open cells, which is 0 for a perfect maze
+    public long getLoops() { return adjacentPairs - openCells + components; }
+
+    // returns if the maze has both a start and an end
+    public boolean hasEndpoints() { return startX >= 0 && endX >= 0; }
+
+    // returns if the start and end are in the same region, so that the maze can be solved
+    public boolean isSolvable() { return connected; }
+
+    // returns the number of open cells that can be reached from the start, or 0 if there is no start
+    public long getReachableCells() { return startComponent; }
+
+    // returns why the maze cannot be solved, or null if it can
+    public String getProblem() {
+        if (startX < 0) return "no start";
+        if (endX < 0) return "no end";
+        if (!connected) return "start and end are not connected";
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " open=" + openCells + " components=" + components
+                + " largestComponent=" + largestComponent + " reachable=" + startComponent + " deadEnds=" + deadEnds
+                + " junctions=" + junctions + " loops=" + getLoops() + " solvable=" + connected;
+    }
+}
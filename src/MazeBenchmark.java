@@ -0,0 +1,321 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/*
+    A benchmark of the Maze hot paths across maze sizes and shapes. Each benchmark is warmed up and then run for a fixed
+    time, with every run starting from a fresh copy of the maze that is made outside of the measured time. Reported are
+    runs per second, nanoseconds and allocated bytes per unit of work (a step, a cell or a call), and the collections
+    that happened while measuring.
+
+    usage: java MazeBenchmark [rooms across and down...]
+ */
+public class MazeBenchmark {
+    // how long each benchmark is warmed up and measured for
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    // the number of rooms across and down of the mazes that are measured when none are given
+    private static final int[] DEFAULT_SIZES = {16, 128, 512};
+
+    // the most cells that isDeadEnd() is measured over in a single run
+    private static final int DEAD_END_SAMPLE = 4096;
+
+    // the most cells that a route to the end is queried from in a single run
+    private static final int PATH_QUERY_SAMPLE = 16;
+
+    // the fraction of inner walls knocked down to turn a perfect maze into one with loops
+    private static final double BRAID_FRACTION = 0.1;
+
+    // the seed that every maze is generated from
+    private static final long SEED = 11292017L;
+
+    // the shapes of maze that are measured
+    //  - CORRIDORS = long winding corridors with few dead-ends, from the recursive backtracker
+    //  - DEAD_ENDS = short corridors with many dead-ends, from Kruskal's algorithm
+    //  - LOOPS = Kruskal's algorithm with some of the walls knocked down, so there is more than one way through
+    private enum Shape {CORRIDORS, DEAD_ENDS, LOOPS}
+
+    // results are written here so the JIT cannot throw the work away
+    private static volatile long sink;
+
+    // the bytes that reading the allocation counter allocates itself, which is taken off of every run
+    private static long allocationOverhead;
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // displayMaze() is measured without a console, as otherwise the console is what gets measured
+        PrintStream console = System.out;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+
+            @Override
+            public void write(byte[] b, int off, int len) { }
+        });
+
+        allocationOverhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long allocated = allocatedBytes();
+            allocationOverhead = Math.min(allocationOverhead, allocatedBytes() - allocated);
+        }
+
+        console.printf("%-22s %-10s %6s %12s %14s %12s %8s %8s%n",
+                "benchmark", "shape", "rooms", "runs/s", "ns/unit", "B/unit", "gc", "gc ms");
+
+        for (int size : sizes) {
+            for (Shape shape : Shape.values()) {
+                PackedCellStore template = build(shape, size);
+
+                run(console, "takeStep", shape, size, "step", new Trial() {
+                    private Maze maze;
+
+                    @Override
+                    public void setUp() { maze = copy(template); }
+
+                    @Override
+                    public long run() {
+                        long steps = 0;
+                        while (!maze.isFinished()) {
+                            maze.takeStep(false);
+                            steps++;
+                        }
+
+                        return steps;
+                    }
+                });
+
+                run(console, "findExit", shape, size, "call", new Trial() {
+                    private Maze maze;
+
+                    @Override
+                    public void setUp() { maze = copy(template); }
+
+                    @Override
+                    public long run() {
+                        System.setOut(discard);
+                        try {
+                            maze.findExit();
+                        } finally {
+                            System.setOut(console);
+                        }
+
+                        return 1;
+                    }
+                });
+
+                Maze maze = copy(template);
+
+                run(console, "findEndpoints", shape, size, "call", new Trial() {
+                    @Override
+                    public void setUp() { }
+
+                    @Override
+                    public long run() {
+                        maze.findEndpoints();
+                        sink += maze.getEndX();
+
+                        return 1;
+                    }
+                });
+
+                int[] openCells = sampleOpenCells(maze);
+                run(console, "isDeadEnd", shape, size, "call", new Trial() {
+                    @Override
+                    public void setUp() { }
+
+                    @Override
+                    public long run() {
+                        int deadEnds = 0;
+                        for (int cell : openCells) {
+                            maze.setActorX(cell % maze.getWidth());
+                            maze.setActorY(cell / maze.getWidth());
+                            if (maze.isDeadEnd()) deadEnds++;
+                        }
+
+                        sink += deadEnds;
+                        return openCells.length;
+                    }
+                });
+
+                // routes to the end from a handful of the sampled cells spread over the maze, each query reusing the
+                // last one's arrays
+                PathQuery query = new PathQuery(maze);
+                for (PathQuery.Algorithm algorithm : PathQuery.Algorithm.values()) {
+                    String name = algorithm == PathQuery.Algorithm.JUMP_POINT ? "pathQueryJps" : "pathQueryBfs";
+                    run(console, name, shape, size, "query", new Trial() {
+                        @Override
+                        public void setUp() { }
+
+                        @Override
+                        public long run() {
+                            int queries = Math.min(openCells.length, PATH_QUERY_SAMPLE);
+                            for (int i = 0; i < queries; i++) {
+                                int cell = openCells[(int) ((long) i * openCells.length / queries)];
+                                PathQuery.Route route = query.toEnd(cell % maze.getWidth(), cell / maze.getWidth(),
+                                        algorithm);
+                                if (route != null) sink += route.getLength();
+                            }
+
+                            return queries;
+                        }
+                    });
+                }
+
+                run(console, "displayMaze", shape, size, "cell", new Trial() {
+                    @Override
+                    public void setUp() { }
+
+                    @Override
+                    public long run() {
+                        System.setOut(discard);
+                        try {
+                            maze.displayMaze();
+                        } finally {
+                            System.setOut(console);
+                        }
+
+                        return (long) maze.getWidth() * maze.getHeight();
+                    }
+                });
+            }
+        }
+    }
+
+    // a single thing being measured
+    private interface Trial {
+        // prepares for a run, outside of the measured time
+        void setUp();
+
+        // runs once, returning the number of units of work that were done
+        long run();
+    }
+
+    // warms a trial up, measures it and prints a line of results
+    private static void run(PrintStream out, String name, Shape shape, int size, String unit, Trial trial) {
+        measure(trial, WARMUP_NANOS);
+
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long[] totals = measure(trial, MEASURE_NANOS);
+        gcCount = gcCount() - gcCount;
+        gcMillis = gcMillis() - gcMillis;
+
+        long runs = totals[0], units = totals[1], nanos = totals[2], bytes = totals[3];
+        out.printf("%-22s %-10s %6d %12.1f %14.2f %12.2f %8d %8d%n", name + " (" + unit + ")", shape, size,
+                runs * 1e9 / nanos, (double) nanos / units, (double) bytes / units, gcCount, gcMillis);
+    }
+
+    // runs a trial over and over for the given time
+    // returns the number of runs, units of work, nanoseconds and bytes allocated while running
+    private static long[] measure(Trial trial, long duration) {
+        long runs = 0, units = 0, nanos = 0, bytes = 0;
+
+        while (nanos < duration) {
+            trial.setUp();
+
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            units += trial.run();
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - allocated - allocationOverhead;
+
+            runs++;
+        }
+
+        return new long[] {runs, units, nanos, bytes};
+    }
+
+    // builds a maze of the given shape, with the given number of rooms across and down
+    private static PackedCellStore build(Shape shape, int size) {
+        PackedCellStore store = new PackedCellStore(MazeGenerator.widthFor(size), MazeGenerator.heightFor(size));
+
+        if (shape == Shape.CORRIDORS) {
+            new BacktrackerGenerator(SEED).carve(store, size, size);
+        } else {
+            new KruskalGenerator(SEED).carve(store, size, size);
+        }
+
+        if (shape == Shape.LOOPS) {
+            // knock down some of the walls that sit between two rooms
+            SplittableRandom random = new SplittableRandom(SEED);
+            for (int y = 1; y < store.getHeight() - 1; y++) {
+                for (int x = 1 + y % 2; x < store.getWidth() - 1; x += 2) {
+                    if (store.get(x, y) == Maze.CELL_WALL && random.nextDouble() < BRAID_FRACTION) {
+                        store.set(x, y, Maze.CELL_PATH);
+                    }
+                }
+            }
+        }
+
+        MazeGenerator.openEndpoints(store);
+
+        return store;
+    }
+
+    // returns a fresh maze over a copy of the given cells
+    private static Maze copy(PackedCellStore template) {
+        return new Maze(new PackedCellStore(template.getWidth(), template.getHeight(), template.getWords().clone()));
+    }
+
+    // picks up to DEAD_END_SAMPLE open cells spread across the maze, as y * width + x
+    private static int[] sampleOpenCells(Maze maze) {
+        int[] cells = new int[DEAD_END_SAMPLE];
+        int count = 0;
+
+        long total = (long) maze.getWidth() * maze.getHeight();
+        long stride = Math.max(1, total / DEAD_END_SAMPLE);
+        for (long cell = 0; cell < total && count < cells.length; cell += stride) {
+            // walk forward to the next open cell
+            while (cell < total && maze.getCell((int) (cell % maze.getWidth()), (int) (cell / maze.getWidth()))
+                    == Maze.CELL_WALL) {
+                cell++;
+            }
+
+            if (cell < total) cells[count++] = (int) cell;
+        }
+
+        int[] sample = new int[count];
+        System.arraycopy(cells, 0, sample, 0, count);
+
+        return sample;
+    }
+
+    // returns the number of bytes allocated by this thread so far
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // returns the number of collections so far, and the time spent in them
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+
+        return millis;
+    }
+}
@@ -0,0 +1,422 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.Arrays;
+
+/*
+    Draws a maze onto a single canvas instead of giving every cell its own nodes, so that the size of the scene graph
+    does not grow with the maze. Only the cells inside the viewport are ever painted, and once the whole viewport has
+    been painted, only the cells that the maze says have changed are painted again.
+
+    The view can be dragged around with the mouse and zoomed with the scroll wheel, and a double click fits the whole
+    maze back into the pane. Until the view is moved, it keeps the maze fitted to the pane as the pane is resized.
+
+    The canvas listens to the maze's steps, which have to be taken on the JavaFX Application Thread. The actor is drawn
+    wherever its position properties say, so that it can be animated between cells. While another thread is changing
+    the maze, the canvas is held: it paints only the cells it is handed along with their types, and anything that
+    would have to be read from the maze, such as a full repaint after a pan or a resize, waits until it is released.
+ */
+public class MazeCanvas extends Pane implements StepListener {
+    // the smallest and largest number of pixels a cell can be zoomed to
+    private static final double MIN_SCALE = 0.25;
+    private static final double MAX_SCALE = 128.0;
+
+    // below this many pixels per cell, cells are filled with flat colors rather than drawn with their images
+    private static final double IMAGE_SCALE = 4.0;
+
+    // the colors used when zoomed far out, and behind the maze
+    private static final Color BACKGROUND = Color.BLACK;
+    private static final Color WALL_COLOR = Color.rgb(96, 88, 80);
+    private static final Color PATH_COLOR = Color.rgb(88, 160, 72);
+    private static final Color TRAIL_COLOR = Color.WHITE;
+    private static final Color GOAL_COLOR = Color.RED;
+    private static final Color ACTOR_COLOR = Color.BLUE;
+    private static final Color AGENT_COLOR = Color.ORANGE;
+    private static final Color ARRIVED_COLOR = Color.YELLOW;
+
+    // the maze being drawn
+    private Maze maze;
+
+    // the canvas that everything is drawn onto
+    private final Canvas canvas = new Canvas();
+
+    // the images for walls, for the paths (picked between by position), for the end, and for the actor facing
+    // each direction (indexed by direction)
+    private final Image wall;
+    private final Image[] grass;
+    private final Image goal;
+    private final Image[] actorImages;
+
+    // the number of pixels per cell, and the position in pixels of the viewport's top-left corner
+    private double scale = 1.0;
+    private double offsetX, offsetY;
+
+    // whether the view has been panned or zoomed away from fitting the maze to the pane
+    private boolean moved;
+
+    // where a drag started, and where the view was when it did
+    private double dragX, dragY;
+    private double dragOffsetX, dragOffsetY;
+
+    // the position the actor is drawn at, counted in cells, and where it was drawn last
+    private final DoubleProperty actorX = new SimpleDoubleProperty();
+    private final DoubleProperty actorY = new SimpleDoubleProperty();
+    private double drawnActorX, drawnActorY;
+
+    // the agents drawn on top of the maze, or null if there are none
+    private AgentSimulation agents;
+
+    // the cells waiting to be painted, as x, y and cell type triples where a type of -1 is read from the maze, and
+    // whether the whole viewport is
+    private int[] dirtyCells = new int[96];
+    private int dirtyCount;
+    private boolean dirtyAll = true;
+
+    // whether another thread is changing the maze, so that nothing is read from it, and the end cell and the way the
+    // actor faces as last handed over while it is
+    private boolean held;
+    private int heldEndCell;
+    private Direction heldFace;
+
+    // whether a paint has been asked for and not happened yet
+    private boolean paintPending;
+
+    public MazeCanvas(Maze maze, Image wall, Image[] grass, Image goal, Image[] actorImages) {
+        super();
+
+        this.wall = wall;
+        this.grass = grass;
+        this.goal = goal;
+        this.actorImages = actorImages;
+
+        // the canvas always covers the pane, and nothing drawn outside of it shows
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        getChildren().add(canvas);
+
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        // resizing keeps the maze fitted until the view has been moved, and always needs a full repaint
+        widthProperty().addListener((observable, oldValue, newValue) -> resized());
+        heightProperty().addListener((observable, oldValue, newValue) -> resized());
+
+        actorX.addListener((observable, oldValue, newValue) -> actorDirty());
+        actorY.addListener((observable, oldValue, newValue) -> actorDirty());
+
+        // drag to pan
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+            dragOffsetX = offsetX;
+            dragOffsetY = offsetY;
+        });
+
+        setOnMouseDragged(e -> {
+            offsetX = dragOffsetX - (e.getX() - dragX);
+            offsetY = dragOffsetY - (e.getY() - dragY);
+            moved = true;
+            repaintAll();
+        });
+
+        // scroll to zoom, keeping the point under the mouse where it is
+        setOnScroll(e -> {
+            double zoomed = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * Math.pow(1.0015, e.getDeltaY())));
+
+            offsetX = (offsetX + e.getX()) / scale * zoomed - e.getX();
+            offsetY = (offsetY + e.getY()) / scale * zoomed - e.getY();
+            scale = zoomed;
+            moved = true;
+            repaintAll();
+        });
+
+        // double click to fit the maze to the pane again
+        setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                moved = false;
+                fit();
+                repaintAll();
+            }
+        });
+
+        setMaze(maze);
+    }
+
+    // switches to drawing another maze, listening to its steps instead of the last one's
+    public void setMaze(Maze maze) {
+        if (this.maze != null) this.maze.removeStepListener(this);
+
+        this.maze = maze;
+        maze.addStepListener(this);
+
+        actorX.set(maze.getActorX());
+        actorY.set(maze.getActorY());
+
+        if (!moved) fit();
+        repaintAll();
+    }
+
+    // set the agents drawn on top of the maze, or null for none
+    //  - the agents can be anywhere, so while there are any the whole viewport is painted every time
+    public void setAgents(AgentSimulation agents) {
+        this.agents = agents;
+        repaintAll();
+    }
+
+    // the position the actor is drawn at, counted in cells, which can be between cells while it is animated
+    public DoubleProperty actorXProperty() { return actorX; }
+    public DoubleProperty actorYProperty() { return actorY; }
+
+    // paints the whole viewport again, on the next pulse
+    public void repaintAll() {
+        dirtyAll = true;
+        requestPaint();
+    }
+
+    // paints a single cell again, on the next pulse
+    //  - while the maze is held the cell's type cannot be read, so it is left as it is until the maze is released
+    public void repaintCell(int x, int y) {
+        if (!held) repaintCell(x, y, -1);
+    }
+
+    // paints a single cell again as the given type, on the next pulse, without reading it from the maze
+    public void repaintCell(int x, int y, int cell) {
+        if (dirtyAll) return;
+
+        // past a quarter of the viewport it is cheaper to paint everything than to keep a list, unless the maze is held
+        // and everything cannot be painted
+        if (!held && dirtyCount >= visibleCells() / 4) {
+            repaintAll();
+            return;
+        }
+
+        if (dirtyCount * 3 == dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCells.length * 2);
+        }
+
+        dirtyCells[dirtyCount * 3] = x;
+        dirtyCells[dirtyCount * 3 + 1] = y;
+        dirtyCells[dirtyCount * 3 + 2] = cell;
+        dirtyCount++;
+
+        requestPaint();
+    }
+
+    // stops reading the maze until release(), for while another thread is changing it
+    //  - in the meantime only the cells handed to repaintCell(x, y, cell) are painted
+    public void hold() {
+        held = true;
+        heldEndCell = maze.getEndX() >= 0 ? maze.getCell(maze.getEndX(), maze.getEndY()) : -1;
+        heldFace = maze.getFace();
+    }
+
+    // sets the way the actor is drawn facing while the maze is held
+    public void setHeldFace(Direction face) {
+        heldFace = face;
+        if (held) requestPaint();
+    }
+
+    // goes back to reading the maze, once nothing else is changing it, and paints everything that had to wait
+    public void release() {
+        held = false;
+        repaintAll();
+    }
+
+    @Override
+    public void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) { repaintCell(x, y); }
+
+    @Override
+    public void actorTurned(Maze maze, Direction face) { actorDirty(); }
+
+    // fits the whole maze into the pane, centered
+    private void fit() {
+        double width = getWidth();
+        double height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE,
+                Math.min(width / maze.getWidth(), height / maze.getHeight())));
+        offsetX = (maze.getWidth() * scale - width) / 2.0;
+        offsetY = (maze.getHeight() * scale - height) / 2.0;
+    }
+
+    private void resized() {
+        if (!moved) fit();
+        repaintAll();
+    }
+
+    // the actor has to be painted over where it was and drawn where it is
+    //  - while the maze is held, where it was is only painted over once that cell is handed over
+    private void actorDirty() {
+        if (held) {
+            requestPaint();
+            return;
+        }
+
+        repaintCell((int) Math.floor(drawnActorX), (int) Math.floor(drawnActorY));
+        repaintCell((int) Math.ceil(drawnActorX), (int) Math.ceil(drawnActorY));
+    }
+
+    // returns roughly how many cells fit in the viewport
+    private long visibleCells() {
+        return (long) (Math.ceil(getWidth() / scale) + 1) * (long) (Math.ceil(getHeight() / scale) + 1);
+    }
+
+    // runs a paint on the next pulse, unless one is already on its way
+    private void requestPaint() {
+        if (paintPending) return;
+
+        paintPending = true;
+        Platform.runLater(this::paint);
+    }
+
+    private void paint() {
+        paintPending = false;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        // painting over only some cells would leave agents behind on the rest
+        if (agents != null) dirtyAll = true;
+
+        // a full paint reads every cell in view from the maze, so it waits until the maze is released
+        if (held && dirtyAll) return;
+
+        if (dirtyAll) {
+            gc.setFill(BACKGROUND);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+            // only the cells that the viewport covers
+            int firstX = Math.max(0, (int) Math.floor(offsetX / scale));
+            int firstY = Math.max(0, (int) Math.floor(offsetY / scale));
+            int lastX = Math.min(maze.getWidth() - 1, (int) Math.floor((offsetX + canvas.getWidth()) / scale));
+            int lastY = Math.min(maze.getHeight() - 1, (int) Math.floor((offsetY + canvas.getHeight()) / scale));
+
+            for (int y = firstY; y <= lastY; y++) {
+                for (int x = firstX; x <= lastX; x++) {
+                    paintCell(gc, x, y, -1);
+                }
+            }
+        } else {
+            for (int i = 0; i < dirtyCount; i++) {
+                paintCell(gc, dirtyCells[i * 3], dirtyCells[i * 3 + 1], dirtyCells[i * 3 + 2]);
+            }
+
+            // painting over where the actor was can cut into the end tile beside it
+            paintCell(gc, maze.getEndX(), maze.getEndY(), held ? heldEndCell : -1);
+        }
+
+        dirtyAll = false;
+        dirtyCount = 0;
+
+        if (agents != null) paintAgents(gc);
+        paintActor(gc);
+    }
+
+    // draws every agent inside the viewport as a small square, colored by whether it has reached the end
+    private void paintAgents(GraphicsContext gc) {
+        double size = Math.max(1.0, Math.floor(scale * .5));
+        double inset = (scale - size) / 2.0;
+
+        double right = canvas.getWidth();
+        double bottom = canvas.getHeight();
+
+        for (int i = 0; i < agents.getAgentCount(); i++) {
+            double left = Math.floor(agents.getX(i) * scale - offsetX + inset);
+            double top = Math.floor(agents.getY(i) * scale - offsetY + inset);
+            if (left + size <= 0 || top + size <= 0 || left >= right || top >= bottom) continue;
+
+            gc.setFill(agents.getState(i) == AgentSimulation.ARRIVED ? ARRIVED_COLOR : AGENT_COLOR);
+            gc.fillRect(left, top, size, size);
+        }
+    }
+
+    // paints a single cell with its tile and its trail, if it has one and can be seen, reading its type from the maze
+    // if it is given as -1
+    private void paintCell(GraphicsContext gc, int x, int y, int type) {
+        if (x < 0 || y < 0 || x >= maze.getWidth() || y >= maze.getHeight()) return;
+
+        double left = Math.floor(x * scale - offsetX);
+        double top = Math.floor(y * scale - offsetY);
+        double width = Math.floor((x + 1) * scale - offsetX) - left;
+        double height = Math.floor((y + 1) * scale - offsetY) - top;
+
+        if (left + width <= 0 || top + height <= 0 || left >= canvas.getWidth() || top >= canvas.getHeight()) return;
+
+        int cell = type >= 0 ? type : maze.getCell(x, y);
+        boolean images = scale >= IMAGE_SCALE;
+
+        if (cell == Maze.CELL_WALL) {
+            if (images) {
+                gc.drawImage(wall, left, top, width, height);
+            } else {
+                gc.setFill(WALL_COLOR);
+                gc.fillRect(left, top, width, height);
+            }
+        } else {
+            if (images) {
+                gc.drawImage(grass[grassFor(x, y)], left, top, width, height);
+            } else {
+                gc.setFill(PATH_COLOR);
+                gc.fillRect(left, top, width, height);
+            }
+
+            // the trail is a small square in the middle of the tile, just as the node renderer draws it
+            if (cell == Maze.CELL_VISITED || cell == Maze.CELL_BAD) {
+                gc.setFill(TRAIL_COLOR);
+                if (images) {
+                    gc.fillRect(left + width * .40, top + height * .40, width * .25, height * .25);
+                } else {
+                    gc.fillRect(left, top, width, height);
+                }
+            }
+        }
+
+        if (x == maze.getEndX() && y == maze.getEndY()) {
+            if (images) {
+                gc.drawImage(goal, left, top, width, height);
+            } else {
+                gc.setFill(GOAL_COLOR);
+                gc.fillRect(left, top, width, height);
+            }
+        }
+    }
+
+    // draws the actor wherever its position properties say, remembering where so that it can be painted over
+    private void paintActor(GraphicsContext gc) {
+        drawnActorX = actorX.get();
+        drawnActorY = actorY.get();
+
+        double left = Math.floor(drawnActorX * scale - offsetX);
+        double top = Math.floor(drawnActorY * scale - offsetY);
+        double size = Math.max(1.0, Math.floor(scale));
+
+        if (scale >= IMAGE_SCALE) {
+            Direction face = held ? heldFace : maze.getFace();
+            gc.drawImage(actorImages[face.ordinal()], left, top, size, size);
+        } else {
+            gc.setFill(ACTOR_COLOR);
+            gc.fillRect(left, top, size, size);
+        }
+    }
+
+    // picks one of the grass images for a cell, which is always the same one for the same cell
+    private int grassFor(int x, int y) {
+        int hash = x * 0x9E3779B1 + y * 0x85EBCA77;
+        hash ^= hash >>> 15;
+
+        return (hash & Integer.MAX_VALUE) % grass.length;
+    }
+}
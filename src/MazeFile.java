@@ -0,0 +1,370 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+    Reads and writes mazes in a compact binary file. Everything is little-endian, starting with a 64 byte header:
+    - 0: the magic number, "MAZE"
+    - 4: the version of the format, currently 1
+    - 8: the encoding of the body, 0 for packed and 1 for run-length
+    - 12: the width and height of the maze
+    - 20: the start x and y, and end x and y, of the maze, -1 if it has none
+    - 36: the length of the body in bytes
+    - 44: the CRC32 of the body
+    - 48: unused, zero
+    The packed body is the cells two bits each, 32 to a long, in the same layout as PackedCellStore, so it can be read
+    into one in bulk or mapped as a MappedCellStore without any parsing. The run-length body is a varint per run of
+    identical cells, holding the length of the run shifted left by two and the cell in the low two bits.
+ */
+public final class MazeFile {
+    // the magic number and version at the start of every file
+    private static final int MAGIC = 0x455A414D;
+    private static final int VERSION = 1;
+
+    // the size of the header, which leaves the body aligned for mapping
+    public static final int HEADER_BYTES = 64;
+
+    // the size of the buffer that bodies are read and written through
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    // the ways the cells of a maze can be stored
+    //  - PACKED = two bits per cell, quickest to load and mappable
+    //  - RUN_LENGTH = a varint per run of identical cells, smallest for mazes with wide open or walled areas
+    public enum Encoding {PACKED, RUN_LENGTH}
+
+    private MazeFile() { }
+
+    // loads a maze from a file into a packed store on the heap, with the start and end points its header gives
+    public static Maze load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, file);
+            PackedCellStore cells = readBody(channel, header, file);
+
+            try {
+                return new Maze(cells, header.startX, header.startY, header.endX, header.endY);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(file + " has invalid endpoints: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    // reads the cells of a maze file into a packed store on the heap
+    public static PackedCellStore read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readBody(channel, readHeader(channel, file), file);
+        }
+    }
+
+    // reads the body of a maze file, from a channel left at its start by readHeader
+    private static PackedCellStore readBody(FileChannel channel, Header header, Path file) throws IOException {
+        long[] words = new long[PackedCellStore.wordCount(header.width, header.height)];
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (header.encoding == Encoding.PACKED) {
+            if (header.bodyLength != (long) words.length * Long.BYTES) {
+                throw new IOException(file + " has a body of " + header.bodyLength + " bytes, expected "
+                        + (long) words.length * Long.BYTES);
+            }
+
+            // read the words straight into the array a buffer at a time
+            int word = 0;
+            while (word < words.length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (long) (words.length - word) * Long.BYTES));
+                fill(channel, buffer, file);
+
+                crc.update(buffer.duplicate());
+
+                int count = buffer.remaining() / Long.BYTES;
+                buffer.asLongBuffer().get(words, word, count);
+                word += count;
+            }
+        } else {
+            decodeRuns(channel, buffer, header, words, crc, file);
+        }
+
+        if ((int) crc.getValue() != header.checksum) {
+            throw new IOException(file + " failed its checksum");
+        }
+
+        return new PackedCellStore(header.width, header.height, words);
+    }
+
+    // maps the cells of a packed maze file as a store, without reading them onto the heap
+    public static MappedCellStore map(Path file, boolean writable) throws IOException {
+        Header header = readHeader(file);
+        if (header.encoding != Encoding.PACKED) {
+            throw new IOException(file + " is run-length encoded, and only packed files can be mapped");
+        }
+
+        return new MappedCellStore(file, HEADER_BYTES, header.width, header.height, writable);
+    }
+
+    // writes a maze to a file, including any marks that the actor has left on it
+    public static void write(Path file, Maze maze, Encoding encoding) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            channel.position(HEADER_BYTES);
+            if (encoding == Encoding.PACKED) {
+                encodePacked(channel, buffer, maze, crc);
+            } else {
+                encodeRuns(channel, buffer, maze, crc);
+            }
+
+            long bodyLength = channel.position() - HEADER_BYTES;
+
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(encoding.ordinal());
+            buffer.putInt(maze.getWidth()).putInt(maze.getHeight());
+            buffer.putInt(maze.getStartX()).putInt(maze.getStartY()).putInt(maze.getEndX()).putInt(maze.getEndY());
+            buffer.putLong(bodyLength).putInt((int) crc.getValue());
+            while (buffer.position() < HEADER_BYTES) buffer.put((byte) 0);
+
+            buffer.flip();
+            channel.position(0);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    // reads the header of a maze file
+    public static Header readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readHeader(channel, file);
+        }
+    }
+
+    // reads and checks the header at the start of a channel, leaving the channel at the start of the body
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        fill(channel, buffer, file);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a maze file");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + " is version " + version + " of the maze format, expected " + VERSION);
+        }
+
+        int encoding = buffer.getInt();
+        if (encoding < 0 || encoding >= Encoding.values().length) {
+            throw new IOException(file + " has an unknown encoding " + encoding);
+        }
+
+        Header header = new Header(Encoding.values()[encoding], buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getInt());
+
+        if (header.width <= 0 || header.height <= 0) {
+            throw new IOException(file + " has an invalid size of " + header.width + "x" + header.height);
+        }
+
+        if (channel.size() != HEADER_BYTES + header.bodyLength) {
+            throw new IOException(file + " is " + channel.size() + " bytes, expected "
+                    + (HEADER_BYTES + header.bodyLength));
+        }
+
+        return header;
+    }
+
+    // reads until the buffer is full, then flips it
+    private static void fill(FileChannel channel, ByteBuffer buffer, Path file) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(file + " ended early");
+            }
+        }
+
+        buffer.flip();
+    }
+
+    // decodes a run-length body into packed words
+    private static void decodeRuns(FileChannel channel, ByteBuffer buffer, Header header, long[] words, CRC32 crc,
+                                   Path file) throws IOException {
+        long cells = (long) header.width * header.height;
+        long cell = 0;
+        long remaining = header.bodyLength;
+
+        // the varint being read, which can span two buffers
+        long run = 0;
+        int shift = 0;
+
+        buffer.limit(0);
+        while (cell < cells) {
+            if (!buffer.hasRemaining()) {
+                if (remaining == 0) throw new IOException(file + " ended in the middle of its cells");
+
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                fill(channel, buffer, file);
+                crc.update(buffer.duplicate());
+                remaining -= buffer.remaining();
+            }
+
+            byte b = buffer.get();
+            run |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            if (b < 0) {
+                if (shift > 63) throw new IOException(file + " has a malformed run");
+                continue;
+            }
+
+            long value = run & 3;
+            long length = run >>> 2;
+            if (length == 0 || length > cells - cell) {
+                throw new IOException(file + " has a run of " + length + " cells at cell " + cell);
+            }
+
+            // walls are zero, so only the other cells need writing
+            if (value != Maze.CELL_WALL) {
+                for (long end = cell + length; cell < end; cell++) {
+                    words[(int) (cell >>> 5)] |= value << ((cell & 31) << 1);
+                }
+            } else {
+                cell += length;
+            }
+
+            run = 0;
+            shift = 0;
+        }
+
+        if (remaining != 0 || buffer.hasRemaining()) {
+            throw new IOException(file + " has data after its cells");
+        }
+    }
+
+    // writes the cells of a maze as packed words
+    private static void encodePacked(FileChannel channel, ByteBuffer buffer, Maze maze, CRC32 crc)
+            throws IOException {
+        // a packed store already holds its cells in this layout
+        if (maze.getCells() instanceof PackedCellStore) {
+            for (long packed : ((PackedCellStore) maze.getCells()).getWords()) {
+                putLong(channel, buffer, crc, packed);
+            }
+
+            drain(channel, buffer, crc);
+            return;
+        }
+
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+
+        long word = 0;
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                word |= (long) maze.getCell(x, y) << (count << 1);
+
+                if (++count == 32) {
+                    putLong(channel, buffer, crc, word);
+                    word = 0;
+                    count = 0;
+                }
+            }
+        }
+
+        if (count > 0) putLong(channel, buffer, crc, word);
+        drain(channel, buffer, crc);
+    }
+
+    // writes the cells of a maze as runs
+    private static void encodeRuns(FileChannel channel, ByteBuffer buffer, Maze maze, CRC32 crc) throws IOException {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+
+        int value = maze.getCell(0, 0);
+        long length = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = maze.getCell(x, y);
+                if (cell != value) {
+                    putVarint(channel, buffer, crc, length << 2 | value);
+                    value = cell;
+                    length = 0;
+                }
+
+                length++;
+            }
+        }
+
+        putVarint(channel, buffer, crc, length << 2 | value);
+        drain(channel, buffer, crc);
+    }
+
+    // adds a long to the buffer, writing the buffer out first if it is full
+    private static void putLong(FileChannel channel, ByteBuffer buffer, CRC32 crc, long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) drain(channel, buffer, crc);
+        buffer.putLong(value);
+    }
+
+    // adds a varint to the buffer, writing the buffer out first if it might not fit
+    private static void putVarint(FileChannel channel, ByteBuffer buffer, CRC32 crc, long value) throws IOException {
+        if (buffer.remaining() < 10) drain(channel, buffer, crc);
+
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    // writes out everything in the buffer and empties it
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // the details held in the header of a maze file
+    public static class Header {
+        // the encoding of the body
+        private final Encoding encoding;
+
+        // the width and height of the maze
+        private final int width, height;
+
+        // the start and end points of the maze, which are -1 if it has none
+        private final int startX, startY;
+        private final int endX, endY;
+
+        // the length and CRC32 of the body
+        private final long bodyLength;
+        private final int checksum;
+
+        Header(Encoding encoding, int width, int height, int startX, int startY, int endX, int endY, long bodyLength,
+               int checksum) {
+            this.encoding = encoding;
+            this.width = width;
+            this.height = height;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.bodyLength = bodyLength;
+            this.checksum = checksum;
+        }
+
+        public Encoding getEncoding() { return encoding; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getStartX() { return startX; }
+        public int getStartY() { return startY; }
+        public int getEndX() { return endX; }
+        public int getEndY() { return endY; }
+        public long getBodyLength() { return bodyLength; }
+    }
+}
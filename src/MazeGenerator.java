@@ -0,0 +1,43 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    Carves perfect mazes out of solid walls. A maze of c columns and r rows of rooms is 2c + 1 cells wide and 2r + 1
+    cells tall, with the rooms at odd coordinates and the walls between them at even ones. The start is opened in the
+    top row next to the left edge and the end in the bottom row next to the right edge, which is where
+    Maze.findEndpoints() looks for them.
+ */
+public interface MazeGenerator {
+    // carves passages between the rooms of a store that is all walls and sized for the given columns and rows
+    void carve(CellStore store, int columns, int rows);
+
+    // generates a maze with the given number of rooms across and down, packed two bits to a cell
+    default Maze generate(int columns, int rows) {
+        CellStore store = new PackedCellStore(widthFor(columns), heightFor(rows));
+
+        carve(store, columns, rows);
+        openEndpoints(store);
+
+        return new Maze(store);
+    }
+
+    // returns the width and height in cells of a maze with the given number of rooms across and down
+    static int widthFor(int columns) { return sizeFor(columns); }
+    static int heightFor(int rows) { return sizeFor(rows); }
+
+    // opens the start at the top left and the end at the bottom right of a carved store
+    static void openEndpoints(CellStore store) {
+        store.set(1, 0, Maze.CELL_PATH);
+        store.set(store.getWidth() - 2, store.getHeight() - 1, Maze.CELL_PATH);
+    }
+
+    // returns the number of cells needed for the given number of rooms plus the walls around them
+    static int sizeFor(int rooms) {
+        if (rooms < 1 || rooms > (Integer.MAX_VALUE - 1) / 2) {
+            throw new IllegalArgumentException("cannot fit " + rooms + " rooms in a maze");
+        }
+
+        return rooms * 2 + 1;
+    }
+}
@@ -0,0 +1,179 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/*
+    Counts what the actor does while a maze is solved: steps, moves and turns, the dead ends it backs out of and how
+    far it has to go to get out of them, how big its history gets, and how long each solve takes. The counters can be
+    read directly, or over JMX once the metrics are registered, and the solves and dead ends are also recorded as
+    flight recorder events when a recording is running, if the events in src-jfr were built (see FlightEvents).
+
+    The metrics are a step listener, and only cost anything once they have been added to a maze. The counters are plain
+    fields written by whichever thread steps the maze, so JMX may see them a moment out of date.
+ */
+public class MazeMetrics implements StepListener, MazeMetricsMXBean {
+    // the counters
+    private long steps;
+    private long moves;
+    private long turns;
+    private long deadEnds;
+    private long retraceMoves;
+    private long longestRetrace;
+    private long maxHistory;
+    private long solves;
+    private long lastSolveNanos;
+    private long totalSolveNanos;
+
+    // when the solve being timed started, and how far the actor has backed out of the dead end it is in
+    private long solveStart;
+    private long retraceLength;
+
+    // the steps and dead ends counted before the solve being timed started, so that its events only count its own
+    private long solveStartSteps;
+    private long solveStartDeadEnds;
+
+    // the flight recorder events, or null if they are not there
+    private final FlightEvents events = FlightEvents.load();
+
+    // the name the metrics are registered under over JMX, or null if they are not
+    private ObjectName name;
+
+    @Override
+    public void solveStarted(Maze maze) {
+        solveStart = System.nanoTime();
+        solveStartSteps = steps;
+        solveStartDeadEnds = deadEnds;
+
+        if (events != null) events.solveStarted();
+    }
+
+    @Override
+    public void actorMoved(Maze maze, int fromX, int fromY, int toX, int toY) {
+        moves++;
+
+        if (maze.getAIMode() == AIMode.RETRACE) {
+            retraceMoves++;
+            retraceLength++;
+        } else {
+            maxHistory = Math.max(maxHistory, maze.getHistory().size());
+        }
+    }
+
+    @Override
+    public void actorTurned(Maze maze, Direction face) { turns++; }
+
+    @Override
+    public void modeChanged(Maze maze, AIMode mode) {
+        if (mode == AIMode.RETRACE) {
+            deadEnds++;
+            retraceLength = 0;
+
+            if (events != null) events.retraceStarted(maze.getActorX(), maze.getActorY());
+        } else {
+            endRetrace();
+        }
+    }
+
+    @Override
+    public void stepTaken(Maze maze) { steps++; }
+
+    @Override
+    public void solveFinished(Maze maze) {
+        // the actor can get stuck partway out of a dead end, which still counts as the end of it
+        if (maze.getAIMode() == AIMode.RETRACE) endRetrace();
+
+        lastSolveNanos = System.nanoTime() - solveStart;
+        totalSolveNanos += lastSolveNanos;
+        solves++;
+
+        if (events != null) {
+            events.solveFinished(maze.getWidth(), maze.getHeight(), steps - solveStartSteps,
+                    deadEnds - solveStartDeadEnds, maze.isComplete());
+        }
+    }
+
+    // records the end of backing out of a dead end
+    private void endRetrace() {
+        longestRetrace = Math.max(longestRetrace, retraceLength);
+
+        if (events != null) events.retraceFinished(retraceLength);
+    }
+
+    // makes the metrics readable over JMX under the given name, which has to be unique among registered metrics
+    public void register(String mazeName) throws JMException {
+        if (name != null) throw new IllegalStateException("metrics are already registered as " + name);
+
+        ObjectName objectName = new ObjectName("MazeGame:type=MazeMetrics,name=" + ObjectName.quote(mazeName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        name = objectName;
+    }
+
+    // stops the metrics being readable over JMX, if they were
+    public void unregister() throws JMException {
+        if (name == null) return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        name = null;
+    }
+
+    @Override
+    public long getSteps() { return steps; }
+
+    @Override
+    public long getMoves() { return moves; }
+
+    @Override
+    public long getTurns() { return turns; }
+
+    @Override
+    public long getDeadEnds() { return deadEnds; }
+
+    @Override
+    public long getRetraceMoves() { return retraceMoves; }
+
+    @Override
+    public long getLongestRetrace() { return longestRetrace; }
+
+    @Override
+    public long getMaxHistory() { return maxHistory; }
+
+    @Override
+    public long getSolves() { return solves; }
+
+    @Override
+    public long getLastSolveNanos() { return lastSolveNanos; }
+
+    @Override
+    public long getTotalSolveNanos() { return totalSolveNanos; }
+
+    @Override
+    public void reset() {
+        steps = 0;
+        moves = 0;
+        turns = 0;
+        deadEnds = 0;
+        retraceMoves = 0;
+        longestRetrace = 0;
+        maxHistory = 0;
+        solves = 0;
+        lastSolveNanos = 0;
+        totalSolveNanos = 0;
+
+        // a solve that is under way when the counters are reset only counts from here on
+        solveStartSteps = 0;
+        solveStartDeadEnds = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "steps=" + steps + " moves=" + moves + " turns=" + turns + " deadEnds=" + deadEnds
+                + " retraceMoves=" + retraceMoves + " longestRetrace=" + longestRetrace + " maxHistory=" + maxHistory
+                + " solves=" + solves + " lastSolveNanos=" + lastSolveNanos;
+    }
+}
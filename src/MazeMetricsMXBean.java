@@ -0,0 +1,29 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The counters of a maze's solve, as they are seen over JMX.
+ */
+public interface MazeMetricsMXBean {
+    // the number of steps, moves and turns the actor has made
+    long getSteps();
+    long getMoves();
+    long getTurns();
+
+    // the number of dead ends the actor has backed out of, the moves spent backing out, and the most for any one
+    long getDeadEnds();
+    long getRetraceMoves();
+    long getLongestRetrace();
+
+    // the most moves the actor's history has held at once
+    long getMaxHistory();
+
+    // the number of solves that have finished, and how long they took in nanoseconds
+    long getSolves();
+    long getLastSolveNanos();
+    long getTotalSolveNanos();
+
+    // sets every counter back to zero
+    void reset();
+}
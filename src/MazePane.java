@@ -2,26 +2,36 @@
 // by Alexandria Carlson and Christian Byrne
 // 11/29/2017
 
-import javafx.animation.PathTransition;
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.SimpleFloatProperty;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
 import javafx.scene.layout.Pane;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
-import javafx.util.Duration;
 
 import java.nio.file.Paths;
 import java.util.Random;
 
 public class MazePane extends Pane {
+    // the ways that the maze can be drawn
+    //  - NODES = every cell gets its own image and trail nodes, which is fine for small mazes
+    //  - CANVAS = the maze is painted onto a single canvas that can be panned and zoomed, for mazes of any size
+    public enum RenderMode {NODES, CANVAS}
+
+    // hears about the progress of Show Path, on the FX thread
+    public interface PathListener {
+        // the number of steps taken so far
+        void progress(long steps);
+
+        // the solve has ended, either by reaching the end, getting stuck, or being cancelled
+        void finished(boolean cancelled);
+    }
+
     // bike music that is to be played
     private final Media bike = new Media(Paths.get("res/bikesong.m4a").toUri().toString());
 
@@ -59,8 +69,41 @@ public class MazePane extends Pane {
     private final Image TILE_WALL_BC = new Image("wall_bottomcenter.png");
     private final Image TILE_WALL_BR = new Image("wall_bottomright.png");
 
-    // the path used for animation
-    private Line path;
+    // the way the maze is drawn
+    private final RenderMode renderMode;
+
+    // the canvas the maze is painted onto in CANVAS mode
+    private MazeCanvas canvas;
+
+    // how many steps a second are taken when stepping by hand, which is how long the slide to each new cell takes
+    private static final double MANUAL_SPEED = 5.0;
+
+    // up to this many steps a second the actor slides between cells, and beyond it only each frame's last cell shows
+    private static final double INTERPOLATE_SPEED = 30.0;
+
+    // the most steps taken in a single frame, so that a stalled frame does not build up a backlog of steps
+    private static final double MAX_STEPS_PER_FRAME = 1 << 20;
+
+    // a seek further than this many moves is drawn once at the end rather than cell by cell
+    private static final int SEEK_REDRAW_MOVES = 4096;
+
+    // the single frame loop that drives every step and slide
+    private final AnimationTimer pilot = new AnimationTimer() {
+        @Override
+        public void handle(long now) { frame(now); }
+    };
+
+    // how many steps a second the autopilot takes
+    private double stepsPerSecond = MANUAL_SPEED;
+
+    // the time of the last frame, or 0 if the loop has just started
+    private long lastFrame;
+
+    // the steps owed since the last one was taken, whose fraction is how far the current slide has gotten
+    private double owed;
+
+    // the cell the actor is sliding from
+    private int slideFromX, slideFromY;
 
     // the maze data
     private Maze maze;
@@ -94,13 +137,106 @@ public class MazePane extends Pane {
     private SimpleFloatProperty actorX;
     private SimpleFloatProperty actorY;
 
-    // the next position of the actor on the maze plane, used for calculating animation paths
-    private SimpleFloatProperty actorNextX;
-    private SimpleFloatProperty actorNextY;
+    // leaves a trail on every cell the maze marks, as the maze marks it
+    private final StepListener trail = new StepListener() {
+        @Override
+        public void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) {
+            if (newCell == Maze.CELL_VISITED || newCell == Maze.CELL_BAD) {
+                visitedMap[x][y].setFill(Color.WHITE);
+                visitedMap[x][y].setStroke(Color.WHITE);
+            } else if (newCell == Maze.CELL_PATH) {
+                // a replay going backwards takes marks away again
+                visitedMap[x][y].setFill(Color.TRANSPARENT);
+                visitedMap[x][y].setStroke(Color.TRANSPARENT);
+            }
+        }
+    };
+
+    // the agents walking the maze alongside the actor, or null if there are none
+    private AgentSimulation agents;
+
+    // the background solve behind Show Path, or null if there is not one going
+    private PathWorker worker;
+
+    // whether the whole trail has to be looked at again once the background solve has finished
+    private boolean trailStale;
+
+    // what hears about the progress of Show Path, if anything
+    private PathListener pathListener;
+
+    // where Show Path looks for the solution before solving, and remembers it after, or null to always solve
+    private SolutionCache solutionCache;
+
+    // the recorded solve being played back instead of solving, or null if the solver is stepped
+    private MoveReplay replay;
+
+    // draws what the background solve has done, on the FX thread
+    private final PathWorker.Publisher published = new PathWorker.Publisher() {
+        @Override
+        public void cellChanged(int x, int y, int cell) {
+            if (renderMode == RenderMode.CANVAS) {
+                canvas.repaintCell(x, y, cell);
+            } else {
+                trail.cellChanged(maze, x, y, Maze.CELL_PATH, cell);
+            }
+        }
+
+        @Override
+        public void allChanged() {
+            if (renderMode == RenderMode.CANVAS) {
+                canvas.repaintAll();
+                return;
+            }
+
+            // the maze cannot be read while the worker is solving it
+            if (worker != null) {
+                trailStale = true;
+                return;
+            }
+
+            for (int x = 0; x < maze.getWidth(); x++) {
+                for (int y = 0; y < maze.getHeight(); y++) {
+                    trail.cellChanged(maze, x, y, Maze.CELL_PATH, maze.getCell(x, y));
+                }
+            }
+        }
+
+        @Override
+        public void progress(long steps, int actorX, int actorY, Direction face) {
+            placeActor(actorX, actorY, face);
+            if (pathListener != null) pathListener.progress(steps);
+        }
+
+        @Override
+        public void finished(boolean cancelled) {
+            worker = null;
+            maze.addStepListener(renderMode == RenderMode.CANVAS ? canvas : trail);
+
+            if (renderMode == RenderMode.CANVAS) {
+                canvas.release();
+            } else if (trailStale) {
+                trailStale = false;
+                allChanged();
+            }
+
+            placeActor(maze.getActorX(), maze.getActorY());
+
+            // show the result in the console as stepping by hand does, if it is small enough to print
+            if (renderMode == RenderMode.NODES) maze.displayMaze();
+
+            if (pathListener != null) pathListener.finished(cancelled);
+        }
+    };
 
     public MazePane(Maze maze) {
+        this(maze, RenderMode.NODES);
+    }
+
+    public MazePane(Maze maze, RenderMode renderMode) {
         super();
 
+        this.renderMode = renderMode;
+
         // the maze is neither running or on autopilot
         autopilot = false;
         isRunning = false;
@@ -108,13 +244,14 @@ public class MazePane extends Pane {
         bikePlayer.setAutoPlay(true);
 
         this.maze = maze;
+        if (renderMode == RenderMode.NODES) maze.addStepListener(trail);
 
         // construct the scene based off of maze data
         flush();
     }
 
     public void flush() {
-        if (rectangles == null) {
+        if (renderMode == RenderMode.NODES && rectangles == null) {
             // set up the tiles so that they are all initialized
             rectangles = new ImageView[maze.getWidth()][maze.getHeight()];
             for (int x = 0; x < maze.getWidth(); x++) {
@@ -130,7 +267,7 @@ public class MazePane extends Pane {
             }
         }
 
-        if (visitedMap == null) {
+        if (renderMode == RenderMode.NODES && visitedMap == null) {
             // set up visited tiles so that they are initialized
             visitedMap = new Rectangle[maze.getWidth()][maze.getHeight()];
             for (int x = 0; x < maze.getWidth(); x++) {
@@ -159,90 +296,66 @@ public class MazePane extends Pane {
             }
         }
 
-        // give each tile an image depending on what maze cell data it corresponds to
-        Random rand = new Random(0);
-        for (int x = 0; x < maze.getWidth(); x++) {
-            for (int y = 0; y < maze.getHeight(); y++) {
-                switch (maze.getCell(x, y)) {
-                    case Maze.CELL_WALL:
-                        rectangles[x][y].imageProperty().setValue(TILE_WALL_MC);
-                        break;
-
-                    case Maze.CELL_PATH:
-                        // each grass tile is chosen in a pseudo-random manner (it's the same result for each run)
-                        switch (rand.nextInt(3)) {
-                            case 0:
-                                rectangles[x][y].imageProperty().setValue(TILE_GRASS_A);
-                                break;
-
-                            case 1:
-                                rectangles[x][y].imageProperty().setValue(TILE_GRASS_B);
-                                break;
-
-                            case 2:
-                                rectangles[x][y].imageProperty().setValue(TILE_GRASS_C);
-                                break;
-
-                            default:
-                                rectangles[x][y].imageProperty().setValue(TILE_WALL_BC);
-                        }
-                        break;
+        if (renderMode == RenderMode.NODES) {
+            // give each tile an image depending on what maze cell data it corresponds to
+            Random rand = new Random(0);
+            for (int x = 0; x < maze.getWidth(); x++) {
+                for (int y = 0; y < maze.getHeight(); y++) {
+                    switch (maze.getCell(x, y)) {
+                        case Maze.CELL_WALL:
+                            rectangles[x][y].imageProperty().setValue(TILE_WALL_MC);
+                            break;
+
+                        case Maze.CELL_PATH:
+                            // each grass tile is chosen in a pseudo-random manner (it's the same result for each run)
+                            switch (rand.nextInt(3)) {
+                                case 0:
+                                    rectangles[x][y].imageProperty().setValue(TILE_GRASS_A);
+                                    break;
+
+                                case 1:
+                                    rectangles[x][y].imageProperty().setValue(TILE_GRASS_B);
+                                    break;
+
+                                case 2:
+                                    rectangles[x][y].imageProperty().setValue(TILE_GRASS_C);
+                                    break;
+
+                                default:
+                                    rectangles[x][y].imageProperty().setValue(TILE_WALL_BC);
+                            }
+                            break;
+                    }
                 }
             }
         }
 
-        // find the start and end points
-
-        startX = -1;
-        startY = -1;
-        endX = -1;
-        endY = -1;
+        // the start and end points are the ones the maze found
+        startX = maze.getStartX();
+        startY = maze.getStartY();
+        endX = maze.getEndX();
+        endY = maze.getEndY();
 
-        // starting top-left, going right
-        for (int x = 0; x < maze.getWidth() && startX < 0; x++) {
-            if (maze.getCell(x, 0) == Maze.CELL_PATH) {
-                startX = x;
-                startY = 0;
-            }
-        }
-
-        // starting top-left, going down
-        for (int y = 1; y < maze.getHeight() && (startY >= 0) ? (endY < 0) : (startY < 0); y++) {
-            if (startY < 0 && maze.getCell(0, y) == Maze.CELL_PATH) {
-                startX = 0;
-                startY = y;
-            } else if (maze.getCell(0, y) == Maze.CELL_PATH) {
-                endX = 0;
-                endY = y;
-            }
-        }
+        // set the actor position to the starting point
+        maze.setActorX(startX);
+        maze.setActorY(startY);
 
-        // starting bottom-left, going right
-        for (int x = 1; x < maze.getWidth() && (startX >= 0) ? (endX < 0) : (startX < 0); x++) {
-            if (startY < 0 && maze.getCell(x, maze.getHeight()-1) == Maze.CELL_PATH) {
-                startX = x;
-                startY = maze.getHeight() - 1;
-            } else if (maze.getCell(x, maze.getHeight()-1) == Maze.CELL_PATH) {
-                endX = x;
-                endY = maze.getHeight()-1;
+        // the canvas draws the actor and the end tile itself, and only needs the victory screen on top of it
+        if (renderMode == RenderMode.CANVAS) {
+            if (canvas == null) {
+                canvas = new MazeCanvas(maze, TILE_WALL_MC, new Image[] {TILE_GRASS_A, TILE_GRASS_B, TILE_GRASS_C},
+                        POKEBALL, new Image[] {PRO_NORTH, PRO_SOUTH, PRO_EAST, PRO_WEST});
+                canvas.prefWidthProperty().bind(widthProperty());
+                canvas.prefHeightProperty().bind(heightProperty());
+                getChildren().add(canvas);
+            } else {
+                canvas.setMaze(maze);
             }
-        }
 
-        // starting top-right, going down
-        for (int y = 1; y < maze.getHeight() && (startY >= 0) ? (endY < 0) : (startY < 0); y++) {
-            if (startY < 0 && maze.getCell(maze.getWidth()-1, y) == Maze.CELL_PATH) {
-                startX = maze.getWidth()-1;
-                startY = y;
-            } else if (maze.getCell(maze.getWidth()-1, y) == Maze.CELL_PATH) {
-                endX = maze.getWidth()-1;
-                endY = y;
-            }
+            flushVictory();
+            return;
         }
 
-        // set the actor position to the starting point
-        maze.setActorX(startX);
-        maze.setActorY(startY);
-
         // make the actor adopt a tile property and image
         actor = new ImageView();
         actor.fitWidthProperty().bind(widthProperty().divide(maze.getWidth()));
@@ -253,9 +366,6 @@ public class MazePane extends Pane {
         actor.xProperty().bind(actor.fitWidthProperty().multiply(actorX));
         actor.yProperty().bind(actor.fitHeightProperty().multiply(actorY));
 
-        actorNextX = new SimpleFloatProperty(maze.getActorX() + 1);
-        actorNextY = new SimpleFloatProperty(maze.getActorY() + 1);
-
         actor.setImage(PRO_EAST);
 
         // do the same for the end tile
@@ -266,14 +376,14 @@ public class MazePane extends Pane {
         pokeball.yProperty().bind(pokeball.fitHeightProperty().multiply(endY));
         pokeball.setImage(POKEBALL);
 
-        // set up the path so that it is ready to animate the actor
-        path = new Line();
-        path.setStroke(Color.TRANSPARENT);
-        path.startXProperty().bind(actorX.multiply(actor.fitWidthProperty()).add(actor.fitWidthProperty().divide(2.0)));
-        path.startYProperty().bind(actorY.multiply(actor.fitHeightProperty()).add(actor.fitHeightProperty().divide(2.0)));
-        path.endXProperty().bind(actorNextX.multiply(actor.fitWidthProperty()).add(actor.fitWidthProperty().divide(2.0)));
-        path.endYProperty().bind(actorNextY.multiply(actor.fitHeightProperty()).add(actor.fitHeightProperty().divide(2.0)));
+        getChildren().add(pokeball);
+        getChildren().add(actor);
+
+        flushVictory();
+    }
 
+    // sets up the victory screen on top of everything else
+    private void flushVictory() {
         // prepare the victory rectangle, and make it transparent so that it is not visible
         victoryScreen = new Rectangle();
         victoryScreen.widthProperty().bind(widthProperty());
@@ -288,155 +398,323 @@ public class MazePane extends Pane {
         victoryText.setFill(Color.TRANSPARENT);
         victoryText.setTextAlignment(TextAlignment.CENTER);
 
-        getChildren().add(path);
-        getChildren().add(pokeball);
-        getChildren().add(actor);
         getChildren().add(victoryScreen);
         getChildren().add(victoryText);
     }
 
     // makes the maze class take a step and animate so that it looks smooth to the viewer
     public void takeStep() {
-        // checks to see if the actor is at the end of the maze, if so notify the rest of the class that this is
-        // the case.
-        if (maze.getActorX() == endX && maze.getActorY() == endY) {
-            isComplete = true;
-        }
-
         // prevent further steps from occurring as the animation is in progress, as this causes visual oddities
-        if (!isRunning && !isComplete) {
-            int lastX = maze.getActorX();
-            int lastY = maze.getActorY();
-
-            // color the visitedMap so that it makes a trail
-            visitedMap[lastX][lastY].setFill(Color.WHITE);
-            visitedMap[lastX][lastY].setStroke(Color.WHITE);
-
-            // take a step and display the result in the console
-            maze.takeStep(true);
-
-            // prepare this data so that the line has an endpoint for animation
-            actorNextX.set(maze.getActorX());
-            actorNextY.set(maze.getActorY());
-
-            // creates a pathTransition that adds the line path and the actor so that it is ready for animating
-            PathTransition pathTransition = new PathTransition();
-            pathTransition.setDuration(Duration.millis(200));
-            pathTransition.setPath(path);
-            pathTransition.setNode(actor);
-            pathTransition.setAutoReverse(true);
-            pathTransition.setOrientation(PathTransition.OrientationType.NONE);
-            pathTransition.setCycleCount(1);
-
-            // set the image of the actor so that it appears to be facing the direction they are moving in.
-            switch (maze.getFace()) {
-                case NORTH:
-                    actor.imageProperty().setValue(PRO_NORTH);
-                    break;
-
-                case SOUTH:
-                    actor.imageProperty().setValue(PRO_SOUTH);
-                    break;
-
-                case EAST:
-                    actor.imageProperty().setValue(PRO_EAST);
-                    break;
-
-                case WEST:
-                    actor.imageProperty().setValue(PRO_WEST);
-                    break;
-            }
+        if (isRunning || isComplete || worker != null) return;
 
-            // were the actor's x position property be bound to anything, unbind it and its y as to prevent visual oddities
-            if (actor.xProperty().isBound()) {
-                actor.xProperty().unbind();
-                actor.yProperty().unbind();
-            }
+        slideFromX = maze.getActorX();
+        slideFromY = maze.getActorY();
 
-            // run the animation
-            isRunning = true;
-            pathTransition.play();
-
-            // these statements control what the mazePane should do next once the animation is complete.
-            // if the mazePane is on autopilot, have the procedure go on an indefinite loop until the autopilot
-            // flag is unchecked.
-
-            // otherwise, just run it once and wait for the procedure to get called again.
-            if (autopilot) {
-                pathTransition.setOnFinished(new EventHandler<ActionEvent>() {
-                    @Override
-                    public void handle(ActionEvent event) {
-                        if (autopilot) {
-                            actorX.setValue(maze.getActorX());
-                            actorY.setValue(maze.getActorY());
-
-                            isRunning = false;
-                            takeStep();
-                        } else {
-                            actorX.setValue(maze.getActorX());
-                            actorY.setValue(maze.getActorY());
-
-                            isRunning = false;
-                        }
-                    }
-                });
-            } else {
-                pathTransition.setOnFinished(new EventHandler<ActionEvent>() {
-                    @Override
-                    public void handle(ActionEvent event) {
-                        actorX.setValue(maze.getActorX());
-                        actorY.setValue(maze.getActorY());
+        // take a step and display the result in the console, unless it is too big to print every step
+        advance(1, renderMode == RenderMode.NODES);
 
-                        isRunning = false;
-                    }
-                });
-            }
-        } else if (isComplete) {
-            if (bikePlayer.getStatus() == MediaPlayer.Status.PLAYING) {
-                bikePlayer.stop();
+        // the slide to the new cell starts now and takes as long as a step does when stepping by hand
+        owed = 0.0;
+        startPilot();
+    }
+
+    // shows the maze path without any animation, solving on a background thread so that the window keeps drawing
+    public void showPath() {
+        if (worker != null) return;
+
+        stopPilot();
+        autopilot = false;
+
+        // a replay already knows the whole path, so it just jumps to the end of it
+        if (replay != null) {
+            seek(replay.getLog().getMoveCount());
+
+            if (pathListener != null) {
+                pathListener.progress(replay.getPosition());
+                pathListener.finished(false);
             }
+            return;
+        }
 
-            if (victoryPlayer.getStatus() != MediaPlayer.Status.PLAYING) {
-                victoryPlayer.play();
+        // the trail is drawn from what the worker publishes, since the maze's own events come from its thread
+        maze.removeStepListener(renderMode == RenderMode.CANVAS ? canvas : trail);
+        if (renderMode == RenderMode.CANVAS) canvas.hold();
+
+        worker = new PathWorker(maze, published, solutionCache);
+        worker.start();
+    }
+
+    // stops a Show Path partway, leaving the actor and the trail wherever they got to
+    public void cancelPath() {
+        if (worker != null) worker.cancel();
+    }
+
+    // returns if Show Path is still solving
+    public boolean isSolving() { return worker != null; }
+
+    // set what hears about the progress of Show Path
+    public void setPathListener(PathListener pathListener) { this.pathListener = pathListener; }
+
+    // set where Show Path looks for solutions and remembers them, or null to always solve
+    public void setSolutionCache(SolutionCache solutionCache) { this.solutionCache = solutionCache; }
+
+    // runs once per frame while the actor is sliding or the autopilot is on
+    private void frame(long now) {
+        double elapsed = lastFrame == 0 ? 0.0 : (now - lastFrame) / 1e9;
+        lastFrame = now;
+
+        double speed = autopilot ? stepsPerSecond : MANUAL_SPEED;
+        owed = Math.min(owed + elapsed * speed, MAX_STEPS_PER_FRAME);
+
+        // still partway through sliding to the last step's cell
+        if (owed < 1.0) {
+            if (speed <= INTERPOLATE_SPEED) {
+                placeActor(slideFromX + (maze.getActorX() - slideFromX) * owed,
+                        slideFromY + (maze.getActorY() - slideFromY) * owed);
             }
+            return;
+        }
 
-            victoryScreen.setFill(Color.BLACK);
-            victoryText.setFill(Color.WHITE);
+        // the slide has finished, so stop here unless the autopilot has more steps to take
+        if (!autopilot || (isDone() && (agents == null || agents.isDone()))) {
+            stopPilot();
+            placeActor(maze.getActorX(), maze.getActorY());
+
+            if (maze.isComplete()) showVictory();
+            return;
+        }
+
+        slideFromX = maze.getActorX();
+        slideFromY = maze.getActorY();
+
+        if (speed <= INTERPOLATE_SPEED) {
+            // slow enough to watch every step slide from one cell to the next
+            advance(1, renderMode == RenderMode.NODES);
+            owed -= 1.0;
+
+            placeActor(slideFromX + (maze.getActorX() - slideFromX) * owed,
+                    slideFromY + (maze.getActorY() - slideFromY) * owed);
+
+            stepAgents(1);
+        } else {
+            // too fast to see each step, so take all that are owed and only show where they end up
+            int steps = (int) owed;
+            advance(steps, false);
+            owed -= steps;
+
+            placeActor(maze.getActorX(), maze.getActorY());
+
+            stepAgents(steps);
         }
     }
 
-    // shows the maze path without any animation
-    public void showPath() {
-        if (isRunning || autopilot) {
-            isRunning = false;
-            autopilot = false;
+    // takes the given number of steps, or plays that many moves of the replay, displaying the maze in the console
+    // afterwards if asked to
+    private void advance(int steps, boolean display) {
+        if (replay != null) {
+            replay.forward(steps);
+            if (display) maze.displayMaze();
+        } else if (steps == 1) {
+            maze.takeStep(display);
+        } else {
+            maze.stepN(steps);
+            if (display) maze.displayMaze();
         }
+    }
+
+    // returns if there is nothing left to step through, which for a replay is once it has played every move
+    private boolean isDone() {
+        return replay != null ? replay.isAtEnd() : maze.isFinished();
+    }
+
+    // moves the agents along with the actor, if there are any
+    private void stepAgents(int steps) {
+        if (agents == null) return;
+
+        agents.step(steps);
+        canvas.repaintAll();
+    }
 
-        maze.findExit();
+    // starts the frame loop, if it is not going already
+    private void startPilot() {
+        if (isRunning) return;
 
-        actorX.setValue(maze.getActorX());
-        actorY.setValue(maze.getActorY());
+        isRunning = true;
+        lastFrame = 0;
+        pilot.start();
+    }
 
-        // if the actor square is not bound to anything, bind it to the final actor coordinates
-        if (!actor.xProperty().isBound()) {
-            actor.xProperty().bind(actorX.subtract(actorNextX.subtract(2.0)).multiply(actor.fitWidthProperty()));
-            actor.yProperty().bind(actorY.subtract(actorNextY).multiply(actor.fitHeightProperty()));
+    // stops the frame loop, leaving the actor wherever it has gotten to
+    private void stopPilot() {
+        pilot.stop();
+        isRunning = false;
+    }
+
+    // moves the actor sprite to a position on the maze plane, which can be between cells, facing the way it is going
+    private void placeActor(double x, double y) {
+        placeActor(x, y, maze.getFace());
+    }
+
+    // moves the actor sprite to a position on the maze plane, facing the given way, which is how the background solve
+    // places it without reading the maze
+    private void placeActor(double x, double y, Direction face) {
+        if (renderMode == RenderMode.CANVAS) {
+            canvas.setHeldFace(face);
+            canvas.actorXProperty().set(x);
+            canvas.actorYProperty().set(y);
+            return;
         }
 
-        for (int i = 0; i < maze.getWidth(); i++) {
-            for (int j = 0; j < maze.getHeight(); j++) {
-                int a = maze.getCell(i, j);
-                if (a == Maze.CELL_VISITED || a == Maze.CELL_BAD) {
-                    visitedMap[i][j].setFill(Color.WHITE);
-                    visitedMap[i][j].setStroke(Color.WHITE);
-                }
-            }
+        actorX.set((float) x);
+        actorY.set((float) y);
+
+        // set the image of the actor so that it appears to be facing the direction they are moving in.
+        switch (face) {
+            case NORTH:
+                actor.imageProperty().setValue(PRO_NORTH);
+                break;
+
+            case SOUTH:
+                actor.imageProperty().setValue(PRO_SOUTH);
+                break;
+
+            case EAST:
+                actor.imageProperty().setValue(PRO_EAST);
+                break;
+
+            case WEST:
+                actor.imageProperty().setValue(PRO_WEST);
+                break;
         }
     }
 
-    // set maze data to work with
-    public void setMaze(Maze maze) { this.maze = maze; }
+    // takes back the last move of the replay, sliding back to the cell it was made from
+    public void stepBack() {
+        if (replay == null || isRunning || worker != null) return;
+
+        slideFromX = maze.getActorX();
+        slideFromY = maze.getActorY();
+
+        replay.back(1);
+        if (isComplete) hideVictory();
+
+        owed = 0.0;
+        startPilot();
+    }
+
+    // plays the replay forwards or backwards to the given number of moves, never running the solver
+    //  - a long way is played without drawing each cell, and the whole maze is drawn once at the end
+    public void seek(int step) {
+        if (replay == null) throw new IllegalStateException("there is no replay to seek");
+
+        stopPilot();
 
-    // set whether the mazePlane should run the takeStep procedure on its own.
-    public void setAutopilot(boolean autopilot) { this.autopilot = autopilot; }
+        boolean redraw = Math.abs(step - replay.getPosition()) > SEEK_REDRAW_MOVES;
+        StepListener view = renderMode == RenderMode.CANVAS ? canvas : trail;
+
+        if (redraw) maze.removeStepListener(view);
+        replay.seek(step);
+
+        if (redraw) {
+            maze.addStepListener(view);
+            published.allChanged();
+        }
+
+        if (isComplete && !maze.isComplete()) hideVictory();
+        placeActor(maze.getActorX(), maze.getActorY());
+        if (maze.isComplete()) showVictory();
+
+        // carry on playing from there if the autopilot is on
+        if (autopilot && !replay.isAtEnd()) {
+            owed = 1.0;
+            startPilot();
+        }
+    }
+
+    // blacks out the maze and plays the victory music
+    private void showVictory() {
+        isComplete = true;
+
+        if (bikePlayer.getStatus() == MediaPlayer.Status.PLAYING) {
+            bikePlayer.stop();
+        }
+
+        if (victoryPlayer.getStatus() != MediaPlayer.Status.PLAYING) {
+            victoryPlayer.play();
+        }
+
+        victoryScreen.setFill(Color.BLACK);
+        victoryText.setFill(Color.WHITE);
+    }
+
+    // takes the victory screen away again, when a replay goes back from the end
+    private void hideVictory() {
+        isComplete = false;
+
+        victoryPlayer.stop();
+        victoryScreen.setFill(Color.TRANSPARENT);
+        victoryText.setFill(Color.TRANSPARENT);
+    }
+
+    // set maze data to work with, moving the trail over to it
+    public void setMaze(Maze maze) {
+        if (worker != null) throw new IllegalStateException("cannot swap mazes while Show Path is solving");
+
+        this.maze.removeStepListener(trail);
+        this.maze = maze;
+
+        if (renderMode == RenderMode.CANVAS) {
+            canvas.setMaze(maze);
+        } else {
+            maze.addStepListener(trail);
+        }
+    }
+
+    // set a recorded solve to play back instead of stepping the solver, or null to go back to the solver
+    //  - the replay has to be playing onto this pane's maze
+    public void setReplay(MoveReplay replay) {
+        if (worker != null) throw new IllegalStateException("cannot start a replay while Show Path is solving");
+        if (replay != null && replay.getMaze() != maze) {
+            throw new IllegalArgumentException("the replay is of a different maze");
+        }
+
+        stopPilot();
+        this.replay = replay;
+    }
+
+    // returns the recorded solve being played back, or null if the solver is stepped
+    public MoveReplay getReplay() { return replay; }
+
+    // set the agents that walk the maze alongside the actor on autopilot, or null for none
+    //  - only CANVAS mode can draw agents, as there can be far too many for a node apiece
+    public void setAgents(AgentSimulation agents) {
+        if (agents != null && renderMode != RenderMode.CANVAS) {
+            throw new IllegalStateException("agents can only be drawn in CANVAS mode");
+        }
+
+        this.agents = agents;
+        if (canvas != null) canvas.setAgents(agents);
+    }
+
+    // set whether the mazePlane should run the takeStep procedure on its own, starting it off straight away
+    public void setAutopilot(boolean autopilot) {
+        this.autopilot = autopilot;
+
+        if (autopilot && !isRunning && !isComplete && worker == null) {
+            owed = 1.0;
+            startPilot();
+        }
+    }
+
+    // returns how many steps a second the autopilot takes
+    public double getSpeed() { return stepsPerSecond; }
+
+    // sets how many steps a second the autopilot takes, which can be well beyond one a frame
+    public void setSpeed(double stepsPerSecond) {
+        if (!(stepsPerSecond > 0.0)) {
+            throw new IllegalArgumentException("speed has to be positive, got " + stepsPerSecond);
+        }
+
+        this.stepsPerSecond = stepsPerSecond;
+    }
 }
@@ -0,0 +1,16 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A strategy for navigating the actor through a maze. The maze drives its solver one step at a time, so solvers can
+    be watched cell by cell in the GUI or run flat out in a batch.
+ */
+public interface MazeSolver {
+    // binds the solver to a maze, forgetting anything from a previous one
+    void init(Maze maze);
+
+    // moves the actor by a single cell towards the end of the maze
+    // returns false without moving if the solver has nowhere left to go
+    boolean step();
+}
@@ -0,0 +1,219 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The layout of a maze that never changes while it is solved: which cells are walls, and where the start and end
+    are. It is read-only, so any number of mazes can be solved over the same topology at once, each keeping its own
+    trail in an overlay on top of it instead of copying the cells.
+
+    The endpoints are found once, when the topology is made, unless they are given, and a hash of the layout is worked
+    out the first time it is asked for.
+ */
+public class MazeTopology implements CellStore {
+    // every other bit of a packed word, which is where a cell's open bit ends up
+    private static final long OPEN_BITS = 0x5555555555555555L;
+
+    // the cells of the maze, which must not change once the topology is made
+    private final CellStore cells;
+
+    // the width and height of the maze
+    private final int width;
+    private final int height;
+
+    // the start and end points, or -1 if there is no opening for them
+    private final int startX, startY;
+    private final int endX, endY;
+
+    // the hash of the layout, and whether it has been worked out yet
+    private volatile long contentHash;
+    private volatile boolean hashed;
+
+    // constructs a topology holding a copy of the given cells, indexed as cells[y][x]
+    public MazeTopology(int[][] cells) {
+        this(new PackedCellStore(cells));
+    }
+
+    // constructs a topology over the given cells, which are used directly and so must not be changed afterwards
+    public MazeTopology(CellStore cells) {
+        this(cells, findEndpoints(cells));
+    }
+
+    // constructs a topology over the given cells with the given start and end points, rather than finding them around
+    // the border
+    //  - either point can be -1, -1 if the maze has none
+    //  - throws IllegalArgumentException if a point is outside of the maze or on a wall
+    public MazeTopology(CellStore cells, int startX, int startY, int endX, int endY) {
+        this(cells, checkEndpoints(cells, startX, startY, endX, endY));
+    }
+
+    private MazeTopology(CellStore cells, int[] endpoints) {
+        this.cells = cells;
+
+        width = cells.getWidth();
+        height = cells.getHeight();
+
+        startX = endpoints[0];
+        startY = endpoints[1];
+        endX = endpoints[2];
+        endY = endpoints[3];
+    }
+
+    // checks that the given start and end points are each either -1, -1 or an open cell of the maze, and returns them
+    // as {startX, startY, endX, endY}
+    //  - throws IllegalArgumentException if they are not
+    static int[] checkEndpoints(CellStore cells, int startX, int startY, int endX, int endY) {
+        checkEndpoint(cells, "start", startX, startY);
+        checkEndpoint(cells, "end", endX, endY);
+
+        return new int[] {startX, startY, endX, endY};
+    }
+
+    private static void checkEndpoint(CellStore cells, String name, int x, int y) {
+        if (x == -1 && y == -1) return;
+
+        if (x < 0 || y < 0 || x >= cells.getWidth() || y >= cells.getHeight()) {
+            throw new IllegalArgumentException(name + " (" + x + ", " + y + ") is outside of the "
+                    + cells.getWidth() + "x" + cells.getHeight() + " maze");
+        }
+
+        if (cells.get(x, y) == Maze.CELL_WALL) {
+            throw new IllegalArgumentException(name + " (" + x + ", " + y + ") is a wall");
+        }
+    }
+
+    // finds the start and end points as the first two openings around the border of a maze, returned as
+    // {startX, startY, endX, endY} with -1 for any that were not found
+    //  - any cell that is not a wall counts, so that a maze loaded with its trail already marked is still found
+    static int[] findEndpoints(CellStore cells) {
+        int width = cells.getWidth();
+        int height = cells.getHeight();
+
+        int startX = -1;
+        int startY = -1;
+        int endX = -1;
+        int endY = -1;
+
+        // starting top-left, going right
+        for (int x = 0; x < width && startX < 0; x++) {
+            if (cells.get(x, 0) != Maze.CELL_WALL) {
+                startX = x;
+                startY = 0;
+            }
+        }
+
+        // starting top-left, going down
+        for (int y = 1; y < height && ((startY >= 0) ? (endY < 0) : (startY < 0)); y++) {
+            if (startY < 0 && cells.get(0, y) != Maze.CELL_WALL) {
+                startX = 0;
+                startY = y;
+            } else if (cells.get(0, y) != Maze.CELL_WALL) {
+                endX = 0;
+                endY = y;
+            }
+        }
+
+        // starting bottom-left, going right
+        for (int x = 1; x < width && ((startX >= 0) ? (endX < 0) : (startX < 0)); x++) {
+            if (startY < 0 && cells.get(x, height - 1) != Maze.CELL_WALL) {
+                startX = x;
+                startY = height - 1;
+            } else if (cells.get(x, height - 1) != Maze.CELL_WALL) {
+                endX = x;
+                endY = height - 1;
+            }
+        }
+
+        // starting top-right, going down
+        for (int y = 1; y < height && ((startY >= 0) ? (endY < 0) : (startY < 0)); y++) {
+            if (startY < 0 && cells.get(width - 1, y) != Maze.CELL_WALL) {
+                startX = width - 1;
+                startY = y;
+            } else if (cells.get(width - 1, y) != Maze.CELL_WALL) {
+                endX = width - 1;
+                endY = y;
+            }
+        }
+
+        return new int[] {startX, startY, endX, endY};
+    }
+
+    @Override
+    public int getWidth() { return width; }
+
+    @Override
+    public int getHeight() { return height; }
+
+    @Override
+    public int get(int x, int y) { return cells.get(x, y); }
+
+    // the topology never changes
+    @Override
+    public void set(int x, int y, int cell) {
+        throw new UnsupportedOperationException("a maze topology is read-only");
+    }
+
+    // returns the packed words of the cells if they are held in a PackedCellStore, or null if they are not
+    long[] getPackedWords() {
+        return cells instanceof PackedCellStore ? ((PackedCellStore) cells).getWords() : null;
+    }
+
+    // returns if the cell at a given point can be walked on
+    public boolean isOpen(int x, int y) { return cells.get(x, y) != Maze.CELL_WALL; }
+
+    // returns the start and end points
+    public int getStartX() { return startX; }
+    public int getStartY() { return startY; }
+    public int getEndX() { return endX; }
+    public int getEndY() { return endY; }
+
+    // returns a hash of the size of the maze and of which of its cells are walls, which is the same for any two
+    // topologies with the same layout however their cells are stored
+    public long getContentHash() {
+        if (!hashed) {
+            contentHash = hash();
+            hashed = true;
+        }
+
+        return contentHash;
+    }
+
+    // hashes the layout 32 cells at a time, each cell as a single bit in the same place a packed store keeps it
+    private long hash() {
+        long hash = mix(((long) width << 32) ^ height);
+
+        if (cells instanceof PackedCellStore) {
+            // the packed words only need every cell folded down to whether it is open
+            for (long word : ((PackedCellStore) cells).getWords()) {
+                hash = mix(hash ^ ((word | (word >>> 1)) & OPEN_BITS));
+            }
+
+            return hash;
+        }
+
+        long word = 0;
+        int filled = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (cells.get(x, y) != Maze.CELL_WALL) word |= 1L << (filled * PackedCellStore.BITS_PER_CELL);
+
+                if (++filled == PackedCellStore.CELLS_PER_WORD) {
+                    hash = mix(hash ^ word);
+                    word = 0;
+                    filled = 0;
+                }
+            }
+        }
+
+        if (filled != 0) hash = mix(hash ^ word);
+
+        return hash;
+    }
+
+    // scrambles the bits of a running hash, as the finalizer of MurmurHash3 does
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
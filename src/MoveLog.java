@@ -0,0 +1,303 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+    Every move of a solve, as recorded by a MoveRecorder, which a MoveReplay can play back onto the same maze without
+    running the solver. Each move is the two-bit direction it was taken in, packed 32 to a long as ActorHistory packs
+    them, and the mode the actor was in is kept as the list of moves at which it switched, so a million moves take a
+    little over 250KB. The cells each move marks follow from its direction and mode, just as they do in Maze.move().
+
+    The position of the actor is kept every KEYFRAME_INTERVAL moves, so where it is after any number of moves can be
+    found by walking forward from the keyframe before it instead of from the start, and MoveReplay puts the actor
+    straight there when it jumps to a keyframe. The keyframes are worked out whenever a log is made or read, which also
+    checks that every move stays inside the maze.
+
+    A saved log is big-endian, starting with the magic number "MZMV" and the version, then the size of the maze, where
+    the actor started and how it ended up, the moves, and the switches as gaps between them written as variable-length
+    numbers. A log is never changed once it is made, so it can be shared between threads.
+ */
+public class MoveLog {
+    // the start of every log file, and the version of its layout
+    private static final int MAGIC = 0x4d5a4d56;
+    private static final int VERSION = 1;
+
+    // the number of moves between keyframes, which is as far as finding a position ever has to walk
+    public static final int KEYFRAME_INTERVAL = 4096;
+
+    // the number of directions held by each long
+    private static final int DIRECTIONS_PER_WORD = 32;
+
+    // every direction and mode, indexed by ordinal
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final AIMode[] MODES = AIMode.values();
+
+    // the size of the maze that was solved
+    private final int width, height;
+
+    // where the actor started, and the way it faced
+    private final int startX, startY;
+    private final Direction startFace;
+
+    // the way the actor faced and the mode it was in once the last move was made, and how the solve ended
+    private final Direction endFace;
+    private final AIMode endMode;
+    private final boolean complete, stuck;
+
+    // the moves, 32 to a word, lowest bits first
+    private final int moveCount;
+    private final long[] moves;
+
+    // the moves at which the mode switched, in order, with the actor starting out in DEFAULT
+    private final int[] switches;
+
+    // the actor's position after every KEYFRAME_INTERVAL moves, starting with where it started
+    private final int[] keyX, keyY;
+
+    MoveLog(int width, int height, int startX, int startY, Direction startFace, Direction endFace, AIMode endMode,
+            boolean complete, boolean stuck, int moveCount, long[] moves, int[] switches) {
+        this.width = width;
+        this.height = height;
+        this.startX = startX;
+        this.startY = startY;
+        this.startFace = startFace;
+        this.endFace = endFace;
+        this.endMode = endMode;
+        this.complete = complete;
+        this.stuck = stuck;
+        this.moveCount = moveCount;
+        this.moves = moves;
+        this.switches = switches;
+
+        if (moves.length < (moveCount + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD) {
+            throw new IllegalArgumentException(moveCount + " moves do not fit in " + moves.length + " words");
+        }
+
+        // walk every move once, keeping the position at each keyframe
+        int keyframes = moveCount / KEYFRAME_INTERVAL + 1;
+        keyX = new int[keyframes];
+        keyY = new int[keyframes];
+
+        int x = startX, y = startY;
+        for (int i = 0; i < moveCount; i++) {
+            if (i % KEYFRAME_INTERVAL == 0) {
+                keyX[i / KEYFRAME_INTERVAL] = x;
+                keyY[i / KEYFRAME_INTERVAL] = y;
+            }
+
+            Direction direction = getDirection(i);
+            x += direction.dx;
+            y += direction.dy;
+
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                throw new IllegalArgumentException("move " + i + " leaves the maze at (" + x + ", " + y + ")");
+            }
+        }
+
+        if (moveCount % KEYFRAME_INTERVAL == 0) {
+            keyX[keyframes - 1] = x;
+            keyY[keyframes - 1] = y;
+        }
+    }
+
+    // reads a log that was saved before
+    public static MoveLog load(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a move log");
+
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is version " + version + " of the move log format, expected " + VERSION);
+            }
+
+            int width = in.readInt();
+            int height = in.readInt();
+            int startX = in.readInt();
+            int startY = in.readInt();
+            Direction startFace = DIRECTIONS[in.readByte()];
+            Direction endFace = DIRECTIONS[in.readByte()];
+            AIMode endMode = MODES[in.readByte()];
+            boolean complete = in.readBoolean();
+            boolean stuck = in.readBoolean();
+
+            int moveCount = in.readInt();
+            if (moveCount < 0) throw new IOException(file + " has " + moveCount + " moves");
+
+            long[] moves = new long[(moveCount + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = in.readLong();
+            }
+
+            int[] switches = new int[in.readInt()];
+            int last = 0;
+            for (int i = 0; i < switches.length; i++) {
+                int gap = readVarint(in, file);
+                if (i > 0 && gap == 0) throw new IOException(file + " switches mode twice at move " + last);
+
+                last += gap;
+                if (last >= moveCount) throw new IOException(file + " switches mode after its last move");
+                switches[i] = last;
+            }
+
+            if (in.read() >= 0) throw new IOException(file + " has data after its moves");
+
+            return new MoveLog(width, height, startX, startY, startFace, endFace, endMode, complete, stuck,
+                    moveCount, moves, switches);
+        } catch (EOFException ex) {
+            throw new IOException(file + " ended early", ex);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new IOException(file + " is not a valid move log: " + ex.getMessage(), ex);
+        }
+    }
+
+    // writes the log to a file, replacing whatever was there
+    public void save(Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(startX);
+            out.writeInt(startY);
+            out.writeByte(startFace.ordinal());
+            out.writeByte(endFace.ordinal());
+            out.writeByte(endMode.ordinal());
+            out.writeBoolean(complete);
+            out.writeBoolean(stuck);
+
+            out.writeInt(moveCount);
+            for (int i = 0; i < (moveCount + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD; i++) {
+                out.writeLong(moves[i]);
+            }
+
+            out.writeInt(switches.length);
+            int last = 0;
+            for (int move : switches) {
+                writeVarint(out, move - last);
+                last = move;
+            }
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in, Path file) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) throw new IOException(file + " has a malformed switch");
+
+            byte b = in.readByte();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    // returns the size of the maze that was solved
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // returns where the actor started, and the way it faced
+    public int getStartX() { return startX; }
+    public int getStartY() { return startY; }
+    public Direction getStartFace() { return startFace; }
+
+    // returns whether the solve reached the end or got stuck, which is neither if it was recorded partway
+    public boolean isComplete() { return complete; }
+    public boolean isStuck() { return stuck; }
+
+    // returns the number of moves
+    public int getMoveCount() { return moveCount; }
+
+    // returns the direction of a move, 0 being the first
+    public Direction getDirection(int move) {
+        if (move < 0 || move >= moveCount) {
+            throw new IndexOutOfBoundsException("move " + move + " of a log of " + moveCount);
+        }
+
+        int shift = (move % DIRECTIONS_PER_WORD) * 2;
+        return DIRECTIONS[(int) (moves[move / DIRECTIONS_PER_WORD] >>> shift) & 3];
+    }
+
+    // returns the mode the actor was in when it made a move
+    public AIMode getMode(int move) {
+        // the number of switches at or before the move says which mode it was in
+        return (getSwitchesBefore(move + 1) & 1) == 0 ? AIMode.DEFAULT : AIMode.RETRACE;
+    }
+
+    // returns the number of switches made before the given number of moves
+    public int getSwitchesBefore(int step) {
+        int found = Arrays.binarySearch(switches, step);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    // returns the number of times the mode switched, and the move at which each switch happened, in order
+    public int getSwitchCount() { return switches.length; }
+    public int getSwitch(int index) { return switches[index]; }
+
+    // returns the way the actor faced after the given number of moves
+    public Direction getFaceAt(int step) {
+        checkStep(step);
+
+        if (step == moveCount) return endFace;
+        return step == 0 ? startFace : getDirection(step - 1);
+    }
+
+    // returns the mode the actor was in after the given number of moves
+    public AIMode getModeAt(int step) {
+        checkStep(step);
+
+        if (step == moveCount) return endMode;
+        return step == 0 ? AIMode.DEFAULT : getMode(step - 1);
+    }
+
+    // returns where the actor was after the given number of moves, walking forward from the keyframe before it
+    public int getActorX(int step) { return positionAt(step)[0]; }
+    public int getActorY(int step) { return positionAt(step)[1]; }
+
+    private int[] positionAt(int step) {
+        checkStep(step);
+
+        int keyframe = step / KEYFRAME_INTERVAL;
+        int x = keyX[keyframe], y = keyY[keyframe];
+
+        for (int i = keyframe * KEYFRAME_INTERVAL; i < step; i++) {
+            Direction direction = getDirection(i);
+            x += direction.dx;
+            y += direction.dy;
+        }
+
+        return new int[] {x, y};
+    }
+
+    private void checkStep(int step) {
+        if (step < 0 || step > moveCount) {
+            throw new IndexOutOfBoundsException("step " + step + " of a log of " + moveCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " from (" + startX + ", " + startY + "): " + moveCount + " moves, "
+                + switches.length + " switches" + (complete ? ", complete" : stuck ? ", stuck" : "");
+    }
+}
@@ -0,0 +1,110 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A step listener that records every move of a solve into a MoveLog, so that the solve can be saved and played back
+    later without running the solver again. It has to be added to a maze before its first step, and records from then
+    until finish() is called, which can be before the solve is over.
+
+    Only solves made entirely of single moves can be recorded, which is every solver but dead-end filling and the
+    junction solver with its trail off. A solver that marks cells away from the actor, or jumps the actor around,
+    leaves the recorder broken, and finish() says why.
+ */
+public class MoveRecorder implements StepListener {
+    // the number of directions held by each long
+    private static final int DIRECTIONS_PER_WORD = 32;
+
+    // the size of the maze being recorded, and where the actor started
+    private final int width, height;
+    private final int startX, startY;
+    private final Direction startFace;
+
+    // the moves so far, packed as MoveLog packs them
+    private long[] moves = new long[4];
+    private int moveCount;
+
+    // the moves at which the mode switched, and the mode of the last move
+    private int[] switches = new int[8];
+    private int switchCount;
+    private AIMode mode = AIMode.DEFAULT;
+
+    // the size of the actor's history after the last move, which every move changes by exactly one
+    private int historySize;
+
+    // why the solve cannot be recorded, or null if it can
+    private String broken;
+
+    // starts recording a maze that has not taken its first step yet
+    //  - throws IllegalStateException if the maze has already been started
+    public MoveRecorder(Maze maze) {
+        if (maze.isStarted()) throw new IllegalStateException("only a maze that has not been started can be recorded");
+
+        width = maze.getWidth();
+        height = maze.getHeight();
+        startX = maze.getActorX();
+        startY = maze.getActorY();
+        startFace = maze.getFace();
+        historySize = maze.getHistory().size();
+    }
+
+    @Override
+    public void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) {
+        if (broken != null) return;
+
+        // a move marks the cell it was made from, after the actor has already left it
+        Direction face = maze.getFace();
+        int mark = maze.getAIMode() == AIMode.DEFAULT ? Maze.CELL_VISITED : Maze.CELL_BAD;
+        if (x != maze.getActorX() - face.dx || y != maze.getActorY() - face.dy || newCell != mark) {
+            broken = "(" + x + ", " + y + ") was marked without the actor moving off of it";
+        }
+    }
+
+    @Override
+    public void actorMoved(Maze maze, int fromX, int fromY, int toX, int toY) {
+        if (broken != null) return;
+
+        // a move goes one cell the way the actor faces, and pushes onto its history or pops off of it
+        Direction face = maze.getFace();
+        AIMode moveMode = maze.getAIMode();
+        int history = maze.getHistory().size();
+        if (toX - fromX != face.dx || toY - fromY != face.dy
+                || history != historySize + (moveMode == AIMode.DEFAULT ? 1 : -1)) {
+            broken = "the actor jumped from (" + fromX + ", " + fromY + ") to (" + toX + ", " + toY + ")";
+            return;
+        }
+
+        historySize = history;
+
+        if (moveMode != mode) {
+            if (switchCount == switches.length) switches = Arrays.copyOf(switches, switchCount * 2);
+            switches[switchCount++] = moveCount;
+            mode = moveMode;
+        }
+
+        int word = moveCount / DIRECTIONS_PER_WORD;
+        if (word == moves.length) moves = Arrays.copyOf(moves, moves.length * 2);
+
+        moves[word] |= (long) face.ordinal() << ((moveCount % DIRECTIONS_PER_WORD) * 2);
+        moveCount++;
+    }
+
+    // returns the number of moves recorded so far
+    public int getMoveCount() { return moveCount; }
+
+    // returns if everything so far could be recorded
+    public boolean isRecordable() { return broken == null; }
+
+    // returns the moves recorded so far, along with where the maze has gotten to
+    //  - throws IllegalStateException if the solve could not be recorded
+    public MoveLog finish(Maze maze) {
+        if (broken != null) throw new IllegalStateException("the solve cannot be recorded: " + broken);
+
+        return new MoveLog(width, height, startX, startY, startFace, maze.getFace(), maze.getAIMode(),
+                maze.isComplete(), maze.isStuck(), moveCount,
+                Arrays.copyOf(moves, (moveCount + DIRECTIONS_PER_WORD - 1) / DIRECTIONS_PER_WORD),
+                Arrays.copyOf(switches, switchCount));
+    }
+}
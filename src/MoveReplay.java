@@ -0,0 +1,332 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    Plays a MoveLog back onto a maze, forwards or backwards, without running the solver. Playing a move forwards
+    makes it just as the solver did, marking the cell it leaves and pushing onto or popping off of the history, so the
+    maze's step listeners see the same moves, marks and turns as they did the first time.
+
+    The whole log is walked once when the replay is made, working out what the cell each move leaves was marked before,
+    two bits a move, so that taking a move back puts the cell back exactly. Every MoveLog.KEYFRAME_INTERVAL moves the
+    walk also takes a keyframe: the cells whose marks changed since the keyframe before, with their marks before and
+    after, and the steps pushed onto the history since it was last that short. Seeking further than a couple of
+    keyframes jumps to the keyframe nearest the target, by writing only the cells that changed on the way and
+    rebuilding the history from the keyframes, and plays the last few moves from there. A jump costs at most the
+    moves to the keyframe beside where the replay is, the marks that changed, and the length of the history.
+
+    The maze has to be the same maze the log was recorded from, not started yet, and must not be stepped by anything
+    else while it is being replayed.
+ */
+public class MoveReplay {
+    // the number of marks held by each long
+    private static final int MARKS_PER_WORD = 32;
+
+    // the number of moves between keyframes
+    private static final int INTERVAL = MoveLog.KEYFRAME_INTERVAL;
+
+    // the maze being played onto, and what is played
+    private final Maze maze;
+    private final MoveLog log;
+
+    // the number of moves played, and the number of switches of mode among them, so that the mode of each move is
+    // found by counting rather than searching
+    private int position;
+    private int switched;
+
+    // what the cell each move left was marked before it, 32 to a word, lowest bits first
+    private final long[] oldCells;
+
+    // the cells whose marks changed between each keyframe and the one before it, as the cell's index shifted left by
+    // four, the mark before shifted left by two, and the mark after, with the changes leading up to keyframe k ending
+    // at changeEnds[k]
+    private long[] changes = new long[64];
+    private final int[] changeEnds;
+
+    // the size of the history at each keyframe, the shortest it got since the keyframe before, and the steps that were
+    // on it above that, packed 32 to a word, with those leading up to keyframe k ending at stepEnds[k]
+    private final int[] historySizes;
+    private final int[] historyLows;
+    private long[] historySteps = new long[4];
+    private final int[] stepEnds;
+
+    // starts playing a log from its first move
+    //  - throws IllegalArgumentException if the maze is not the size the log was recorded at, or the actor is not where
+    //    the log starts
+    //  - throws IllegalStateException if the maze has already been started
+    public MoveReplay(Maze maze, MoveLog log) {
+        if (maze.isStarted()) throw new IllegalStateException("only a maze that has not been started can be replayed");
+
+        if (maze.getWidth() != log.getWidth() || maze.getHeight() != log.getHeight()) {
+            throw new IllegalArgumentException("log of a " + log.getWidth() + "x" + log.getHeight()
+                    + " maze does not fit maze of " + maze.getWidth() + "x" + maze.getHeight());
+        }
+
+        if (maze.getActorX() != log.getStartX() || maze.getActorY() != log.getStartY()) {
+            throw new IllegalArgumentException("log starts at (" + log.getStartX() + ", " + log.getStartY()
+                    + "), but the actor is at (" + maze.getActorX() + ", " + maze.getActorY() + ")");
+        }
+
+        this.maze = maze;
+        this.log = log;
+
+        oldCells = new long[(log.getMoveCount() + MARKS_PER_WORD - 1) / MARKS_PER_WORD];
+
+        int keyframes = log.getMoveCount() / INTERVAL + 1;
+        changeEnds = new int[keyframes];
+        historySizes = new int[keyframes];
+        historyLows = new int[keyframes];
+        stepEnds = new int[keyframes];
+        takeKeyframes();
+
+        maze.setFace(log.getStartFace());
+        maze.setAIMode(AIMode.DEFAULT);
+    }
+
+    // walks every move of the log without touching the maze, keeping what each move's cell was marked before and
+    // taking a keyframe every INTERVAL moves
+    //  - throws IllegalArgumentException if the log retraces further back than its start
+    private void takeKeyframes() {
+        int width = log.getWidth();
+
+        // the marks of the cells so far, two bits each, which are read from the maze the first time they are needed
+        long cellCount = (long) width * log.getHeight();
+        long[] marks = new long[(int) ((cellCount + MARKS_PER_WORD - 1) / MARKS_PER_WORD)];
+        long[] loaded = new long[(int) ((cellCount + 63) >>> 6)];
+
+        // the cells the moves since the last keyframe have left, each once, and their marks at that keyframe
+        long[] touched = new long[loaded.length];
+        int[] touchedCells = new int[INTERVAL];
+        int[] touchedMarks = new int[INTERVAL];
+        int touchedCount = 0;
+
+        ActorHistory history = new ActorHistory();
+        int low = 0;
+        int changeCount = 0, stepCount = 0;
+
+        int x = log.getStartX(), y = log.getStartY();
+        int switchedSoFar = 0;
+
+        for (int move = 0; move <= log.getMoveCount(); move++) {
+            if (move > 0 && move % INTERVAL == 0) {
+                int keyframe = move / INTERVAL;
+
+                // keep the cells whose marks ended up different, forgetting which were touched for the next interval
+                for (int i = 0; i < touchedCount; i++) {
+                    int cell = touchedCells[i];
+                    int mark = getMark(marks, cell);
+
+                    if (mark != touchedMarks[i]) {
+                        if (changeCount == changes.length) changes = Arrays.copyOf(changes, changeCount * 2);
+                        changes[changeCount++] = (long) cell << 4 | touchedMarks[i] << 2 | mark;
+                    }
+
+                    touched[cell >>> 6] &= ~(1L << cell);
+                }
+
+                touchedCount = 0;
+                changeEnds[keyframe] = changeCount;
+
+                // keep the steps on the history above the shortest it got
+                int size = history.size();
+                for (int i = low; i < size; i++) {
+                    if (stepCount / MARKS_PER_WORD == historySteps.length) {
+                        historySteps = Arrays.copyOf(historySteps, historySteps.length * 2);
+                    }
+
+                    historySteps[stepCount / MARKS_PER_WORD] |=
+                            (long) history.getDirection(i).ordinal() << ((stepCount % MARKS_PER_WORD) * 2);
+                    stepCount++;
+                }
+
+                historySizes[keyframe] = size;
+                historyLows[keyframe] = low;
+                stepEnds[keyframe] = stepCount;
+                low = size;
+            }
+
+            if (move == log.getMoveCount()) break;
+
+            while (switchedSoFar < log.getSwitchCount() && log.getSwitch(switchedSoFar) <= move) switchedSoFar++;
+            boolean retracing = (switchedSoFar & 1) != 0;
+
+            int cell = y * width + x;
+            if ((loaded[cell >>> 6] & (1L << cell)) == 0) {
+                setMark(marks, cell, maze.getCell(x, y));
+                loaded[cell >>> 6] |= 1L << cell;
+            }
+
+            int oldCell = getMark(marks, cell);
+            oldCells[move / MARKS_PER_WORD] |= (long) oldCell << ((move % MARKS_PER_WORD) * 2);
+
+            if ((touched[cell >>> 6] & (1L << cell)) == 0) {
+                touched[cell >>> 6] |= 1L << cell;
+                touchedCells[touchedCount] = cell;
+                touchedMarks[touchedCount] = oldCell;
+                touchedCount++;
+            }
+
+            // the move marks the cell it leaves, and pushes onto the history or pops off of it, as Maze.move() does
+            Direction direction = log.getDirection(move);
+            setMark(marks, cell, retracing ? Maze.CELL_BAD : Maze.CELL_VISITED);
+
+            if (retracing) {
+                if (history.isEmpty()) throw new IllegalArgumentException("move " + move + " retraces past the start");
+
+                history.pop();
+                low = Math.min(low, history.size());
+            } else {
+                history.push(x, y, direction);
+            }
+
+            x += direction.dx;
+            y += direction.dy;
+        }
+    }
+
+    private static int getMark(long[] marks, int cell) {
+        return (int) (marks[cell / MARKS_PER_WORD] >>> ((cell % MARKS_PER_WORD) * 2)) & 3;
+    }
+
+    private static void setMark(long[] marks, int cell, int mark) {
+        int shift = (cell % MARKS_PER_WORD) * 2;
+        marks[cell / MARKS_PER_WORD] = (marks[cell / MARKS_PER_WORD] & ~(3L << shift)) | ((long) mark << shift);
+    }
+
+    // plays up to n moves forwards, stopping at the end of the log
+    // returns the number of moves played
+    public int forward(int n) {
+        int played = Math.min(n, log.getMoveCount() - position);
+
+        for (int i = 0; i < played; i++) {
+            while (switched < log.getSwitchCount() && log.getSwitch(switched) <= position) switched++;
+
+            maze.setAIMode((switched & 1) == 0 ? AIMode.DEFAULT : AIMode.RETRACE);
+            maze.setFace(log.getDirection(position));
+            maze.move();
+
+            position++;
+        }
+
+        settle();
+        return played;
+    }
+
+    // takes back up to n moves, stopping at the start of the log
+    // returns the number of moves taken back
+    public int back(int n) {
+        int taken = Math.min(n, position);
+
+        for (int i = 0; i < taken; i++) {
+            position--;
+
+            int shift = (position % MARKS_PER_WORD) * 2;
+            int oldCell = (int) (oldCells[position / MARKS_PER_WORD] >>> shift) & 3;
+
+            maze.unmove(log.getDirection(position), (switched & 1) == 0 ? AIMode.DEFAULT : AIMode.RETRACE, oldCell);
+
+            while (switched > 0 && log.getSwitch(switched - 1) >= position) switched--;
+        }
+
+        settle();
+        return taken;
+    }
+
+    // plays forwards or backwards to the given number of moves, which is clamped to the length of the log, jumping to
+    // the keyframe nearest to it first if it is more than a couple of keyframes away
+    public void seek(int step) {
+        step = Math.max(0, Math.min(step, log.getMoveCount()));
+
+        if (Math.abs(step - position) > INTERVAL * 2) {
+            jump(Math.min((step + INTERVAL / 2) / INTERVAL, changeEnds.length - 1));
+        }
+
+        if (step > position) {
+            forward(step - position);
+        } else if (step < position) {
+            back(position - step);
+        } else {
+            settle();
+        }
+    }
+
+    // puts the maze as it was at a keyframe
+    private void jump(int keyframe) {
+        // play to the keyframe on the way there, so that the marks can be changed a whole interval at a time
+        if (position % INTERVAL != 0) {
+            if (keyframe * INTERVAL > position) {
+                forward(INTERVAL - position % INTERVAL);
+            } else {
+                back(position % INTERVAL);
+            }
+        }
+
+        int from = position / INTERVAL;
+        int width = log.getWidth();
+
+        if (from < keyframe) {
+            for (int i = changeEnds[from]; i < changeEnds[keyframe]; i++) {
+                int cell = (int) (changes[i] >>> 4);
+                maze.markCell(cell % width, cell / width, (int) changes[i] & 3);
+            }
+        } else {
+            for (int i = changeEnds[from] - 1; i >= changeEnds[keyframe]; i--) {
+                int cell = (int) (changes[i] >>> 4);
+                maze.markCell(cell % width, cell / width, (int) (changes[i] >>> 2) & 3);
+            }
+        }
+
+        // the history at the keyframe is the steps kept there, on top of the steps kept at the keyframes before it for
+        // as far down as each of those got
+        int size = historySizes[keyframe];
+        long[] history = new long[(size + MARKS_PER_WORD - 1) / MARKS_PER_WORD];
+
+        int top = size;
+        for (int k = keyframe; k > 0 && top > 0; k--) {
+            int low = historyLows[k];
+
+            for (int i = low; i < top; i++) {
+                int kept = stepEnds[k - 1] + i - low;
+                long direction = (historySteps[kept / MARKS_PER_WORD] >>> ((kept % MARKS_PER_WORD) * 2)) & 3;
+                history[i / MARKS_PER_WORD] |= direction << ((i % MARKS_PER_WORD) * 2);
+            }
+
+            top = Math.min(top, low);
+        }
+
+        position = keyframe * INTERVAL;
+        switched = log.getSwitchesBefore(position);
+
+        maze.restoreSolve(log.getActorX(position), log.getActorY(position), log.getFaceAt(position), history, size,
+                false, false);
+    }
+
+    // faces the actor and sets its mode as they were after the moves played so far, and finishes the maze at the end
+    private void settle() {
+        maze.setFace(log.getFaceAt(position));
+        maze.setAIMode(log.getModeAt(position));
+
+        boolean atEnd = position == log.getMoveCount();
+        maze.setSolveState(position > 0, atEnd && log.isComplete(), atEnd && log.isStuck());
+    }
+
+    // returns the maze being played onto
+    public Maze getMaze() { return maze; }
+
+    // returns the log being played
+    public MoveLog getLog() { return log; }
+
+    // returns the number of moves played
+    public int getPosition() { return position; }
+
+    // returns if every move has been played, or none have
+    public boolean isAtEnd() { return position == log.getMoveCount(); }
+    public boolean isAtStart() { return position == 0; }
+
+    @Override
+    public String toString() {
+        return "move " + position + " of " + log.getMoveCount();
+    }
+}
@@ -0,0 +1,166 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A cell store that keeps one run's marks on top of a shared, read-only maze topology. The marks are packed two bits
+    to a cell in the same layout as a PackedCellStore, where 0 means the cell is as the topology has it, and every
+    unmarked cell reads straight through to the topology.
+
+    The overlay keeps a list of the words it has marked, so clearing it only touches those words and starting a run
+    over costs as much as the last run did rather than as much as the maze is big. The marks themselves are not
+    allocated until the first one is set.
+
+    The walls all come from the topology, so a cell can be marked with anything but a wall.
+ */
+public class OverlayCellStore implements CellStore {
+    // the layout underneath the marks
+    private final MazeTopology topology;
+
+    // the width and height of the maze, used to turn points into cell indexes
+    private final int width;
+    private final int height;
+
+    // the topology's own packed words, read directly when it has them so that each read only works out the index once
+    private final long[] baseWords;
+
+    // the packed marks, or null until the first one is set
+    private long[] marks;
+
+    // the indexes of the words that have had marks set in them, and a bit for each word saying if it is listed
+    private int[] touched = new int[64];
+    private int touchedCount;
+    private long[] listed;
+
+    // the number of cells that have been marked
+    private long size;
+
+    public OverlayCellStore(MazeTopology topology) {
+        this.topology = topology;
+        this.width = topology.getWidth();
+        this.height = topology.getHeight();
+        this.baseWords = topology.getPackedWords();
+    }
+
+    // returns the topology underneath the marks
+    public MazeTopology getTopology() { return topology; }
+
+    @Override
+    public int getWidth() { return topology.getWidth(); }
+
+    @Override
+    public int getHeight() { return topology.getHeight(); }
+
+    @Override
+    public int get(int x, int y) {
+        if (baseWords == null) {
+            // the topology checks that the point is in bounds
+            int cell = topology.get(x, y);
+            if (cell == Maze.CELL_WALL || marks == null) return cell;
+
+            int mark = mark((long) y * width + x);
+            return mark != 0 ? mark : cell;
+        }
+
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is outside of " + width + "x" + height);
+        }
+
+        long index = (long) y * width + x;
+        int word = (int) (index / PackedCellStore.CELLS_PER_WORD);
+        int shift = (int) (index & (PackedCellStore.CELLS_PER_WORD - 1)) * PackedCellStore.BITS_PER_CELL;
+
+        // walls are never marked
+        int cell = (int) ((baseWords[word] >>> shift) & PackedCellStore.CELL_MASK);
+        if (cell == Maze.CELL_WALL || marks == null) return cell;
+
+        int mark = (int) ((marks[word] >>> shift) & PackedCellStore.CELL_MASK);
+        return mark != 0 ? mark : cell;
+    }
+
+    // sets the mark of a cell, or takes it away if the cell is set back to how the topology has it
+    //  - throws UnsupportedOperationException if an open cell is set to a wall
+    @Override
+    public void set(int x, int y, int cell) {
+        int base = topology.get(x, y);
+        if (base == Maze.CELL_WALL && cell == Maze.CELL_WALL) return;
+
+        if (cell == Maze.CELL_WALL) {
+            throw new UnsupportedOperationException("walls come from the topology and cannot be marked");
+        }
+
+        if (base == Maze.CELL_WALL) {
+            throw new UnsupportedOperationException("(" + x + ", " + y + ") is a wall and cannot be marked");
+        }
+
+        if (marks == null) {
+            if (cell == base) return;
+            marks = new long[PackedCellStore.wordCount(topology.getWidth(), topology.getHeight())];
+            listed = new long[(marks.length + 63) / 64];
+        }
+
+        long index = (long) y * width + x;
+        int word = (int) (index / PackedCellStore.CELLS_PER_WORD);
+        int shift = (int) (index & (PackedCellStore.CELLS_PER_WORD - 1)) * PackedCellStore.BITS_PER_CELL;
+
+        long mark = cell == base ? 0 : cell & PackedCellStore.CELL_MASK;
+        long old = (marks[word] >>> shift) & PackedCellStore.CELL_MASK;
+
+        if (old == 0 && mark != 0) {
+            size++;
+
+            // a word only needs listing the first time it is marked
+            if ((listed[word >>> 6] & (1L << word)) == 0) {
+                listed[word >>> 6] |= 1L << word;
+
+                if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touched.length * 2);
+                touched[touchedCount++] = word;
+            }
+        } else if (old != 0 && mark == 0) {
+            size--;
+        }
+
+        marks[word] = (marks[word] & ~(PackedCellStore.CELL_MASK << shift)) | (mark << shift);
+    }
+
+    // returns the mark at a cell index, or 0 if it has none
+    private int mark(long index) {
+        int shift = (int) (index & (PackedCellStore.CELLS_PER_WORD - 1)) * PackedCellStore.BITS_PER_CELL;
+        return (int) ((marks[(int) (index / PackedCellStore.CELLS_PER_WORD)] >>> shift) & PackedCellStore.CELL_MASK);
+    }
+
+    // returns the number of cells that are marked
+    public long size() { return size; }
+
+    // removes every mark, leaving the cells as the topology has them
+    public void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            marks[touched[i]] = 0;
+            listed[touched[i] >>> 6] = 0;
+        }
+
+        touchedCount = 0;
+        size = 0;
+    }
+
+    // calls the visitor with every cell that is marked, in order along each row and then down the rows
+    public void forEachMarked(HistoryView.PositionVisitor visitor) {
+        // only the list of words needs sorting, as the cells within each word are already in order
+        Arrays.sort(touched, 0, touchedCount);
+
+        for (int i = 0; i < touchedCount; i++) {
+            int word = touched[i];
+            long bits = marks[word];
+
+            while (bits != 0) {
+                int cell = Long.numberOfTrailingZeros(bits) / PackedCellStore.BITS_PER_CELL;
+                long index = (long) word * PackedCellStore.CELLS_PER_WORD + cell;
+                visitor.visit((int) (index % width), (int) (index / width));
+
+                bits &= ~(PackedCellStore.CELL_MASK << (cell * PackedCellStore.BITS_PER_CELL));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    A cell store that packs every cell into two bits of one flat long array, row by row. The four cell types fit
+    exactly, so the store takes 1/16th of the memory of an int[][] and has no per-row headers or indirection.
+ */
+public class PackedCellStore implements CellStore {
+    // the number of cells held by each long, and the bits used by each cell
+    static final int CELLS_PER_WORD = 32;
+    static final int BITS_PER_CELL = 2;
+    static final long CELL_MASK = 3L;
+
+    // the packed cells, 32 to a word, lowest bits first
+    private final long[] words;
+
+    // the width and height of the store
+    private final int width;
+    private final int height;
+
+    // constructs a store of the given size where every cell is a wall
+    public PackedCellStore(int width, int height) {
+        this(width, height, new long[wordCount(width, height)]);
+    }
+
+    // constructs a store holding a copy of the given cells, indexed as cells[y][x]
+    public PackedCellStore(int[][] cells) {
+        this(cells[0].length, cells.length);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                set(x, y, cells[y][x]);
+            }
+        }
+    }
+
+    // constructs a store over words that are already packed, used when loading a maze in bulk
+    PackedCellStore(int width, int height, long[] words) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("maze must be at least 1x1, got " + width + "x" + height);
+        }
+
+        if (words.length != wordCount(width, height)) {
+            throw new IllegalArgumentException("expected " + wordCount(width, height) + " words, got " + words.length);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.words = words;
+    }
+
+    // returns a store holding a copy of the given cells, which can then change without the copy changing with them
+    public static PackedCellStore copyOf(CellStore cells) {
+        if (cells instanceof PackedCellStore) {
+            PackedCellStore packed = (PackedCellStore) cells;
+            return new PackedCellStore(packed.width, packed.height, packed.words.clone());
+        }
+
+        PackedCellStore copy = new PackedCellStore(cells.getWidth(), cells.getHeight());
+        for (int y = 0; y < copy.height; y++) {
+            for (int x = 0; x < copy.width; x++) {
+                copy.set(x, y, cells.get(x, y));
+            }
+        }
+
+        return copy;
+    }
+
+    // returns the number of longs needed to hold a store of the given size
+    static int wordCount(int width, int height) {
+        long words = ((long) width * height + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("maze of " + width + "x" + height + " is too large to pack on the heap");
+        }
+
+        return (int) words;
+    }
+
+    @Override
+    public int getWidth() { return width; }
+
+    @Override
+    public int getHeight() { return height; }
+
+    @Override
+    public int get(int x, int y) {
+        long index = index(x, y);
+        int shift = (int) (index & (CELLS_PER_WORD - 1)) * BITS_PER_CELL;
+
+        return (int) ((words[(int) (index / CELLS_PER_WORD)] >>> shift) & CELL_MASK);
+    }
+
+    @Override
+    public void set(int x, int y, int cell) {
+        long index = index(x, y);
+        int word = (int) (index / CELLS_PER_WORD);
+        int shift = (int) (index & (CELLS_PER_WORD - 1)) * BITS_PER_CELL;
+
+        words[word] = (words[word] & ~(CELL_MASK << shift)) | ((cell & CELL_MASK) << shift);
+    }
+
+    // returns the packed words, shared with the store rather than copied
+    long[] getWords() { return words; }
+
+    // turns a point into a flat cell index, failing the same way an array would when the point is out of bounds
+    private long index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is outside of " + width + "x" + height);
+        }
+
+        return (long) y * width + x;
+    }
+}
@@ -0,0 +1,513 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    Answers shortest-path questions between any two cells of a maze, over and over, without solving the maze or
+    touching its trail. The layout is read once into a bitset of open cells with a border of walls around it, so
+    that no step ever needs a bounds check, and every query after that works only in arrays the query owns.
+
+    Two searches are offered:
+    - BIDIRECTIONAL_BFS grows a breadth-first search from both ends a level at a time, always growing the smaller
+      side, and stops once no route through the levels still to come could be shorter than the best one found
+    - JUMP_POINT is an A* search, guided by the Manhattan distance, that only stops at cells where there is a choice
+      to make: junctions, the two ends of the query, and nothing else. From each of those it jumps down every
+      corridor, around its corners, to the next one, and corridors that end in a dead end are never queued at all.
+      The jumps out of every junction are worked out once, as a JunctionGraph, so a jump costs a few array reads
+      however long the corridor is, and only the corridors that the two ends of a query lie partway down are walked
+
+    Neither search clears anything between queries. Every cell a search reaches is stamped with a number that is the
+    query's base plus the cell's distance, and a cell counts as reached only if its stamp is at least the base, so a
+    new query just starts from a base above every stamp of the last one. The arrays are only cleared when the stamps
+    would run out, once every couple of billion cells' worth of distance.
+
+    A query object is not safe to share between threads, but any number of them can share one layout by being made
+    from each other.
+ */
+public class PathQuery {
+    // the searches that can be run
+    public enum Algorithm {BIDIRECTIONAL_BFS, JUMP_POINT}
+
+    // every direction, indexed by ordinal
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // the bit of a cell's search byte that is set once A* has expanded it, below which is the direction it was
+    // reached in
+    private static final int CLOSED = 4;
+
+    // the position of the estimate within an A* open entry, below which is the cell
+    private static final int ESTIMATE_SHIFT = 31;
+    private static final long CELL_MASK = (1L << ESTIMATE_SHIFT) - 1;
+
+    // the size of the maze, and of the padded grid that has a wall all of the way around it
+    private final int width, height;
+    private final int paddedWidth;
+
+    // one bit per padded cell, set if it is open
+    private final long[] open;
+
+    // the jumps down every corridor, and the padded cells of the maze's start and end, which the graph counts as
+    // nodes even partway down a corridor, or -1 if there are none
+    private final JunctionGraph graph;
+    private final int startCell, endCell;
+
+    // the step from a padded cell to its neighbour in each direction
+    private final int[] offsets;
+
+    // the start and end of the maze, or -1 if it has none
+    private final int startX, startY, endX, endY;
+
+    // the stamp below which nothing counts as reached, and the one the next query starts from
+    private int base;
+    private int nextBase = 1;
+
+    // the stamps and search bytes of the search from the source, and of the search from the target
+    private int[] forwardStamps, backwardStamps;
+    private byte[] forwardSearch, backwardSearch;
+
+    // the frontiers of the two breadth-first searches, and the open set of A*
+    private final IntQueue forwardQueue = new IntQueue();
+    private final IntQueue backwardQueue = new IntQueue();
+    private final LongHeap heap = new LongHeap();
+
+    // how long the last jump was, and the direction it arrived in
+    private int jumpLength;
+    private int jumpArrival;
+
+    // the edge slots of the graph, as node * 4 + direction, that lead down the corridors the two ends of the query
+    // lie partway down, which have to be walked so that the ends are not jumped straight over
+    private final int[] walkedSlots = new int[4];
+    private int walkedSlotCount;
+
+    // the number of cells the last query expanded
+    private long expanded;
+
+    // reads the layout of a maze and where its endpoints are
+    public PathQuery(Maze maze) {
+        this(maze.getTopology() != null ? maze.getTopology() : maze.getCells(),
+                maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY());
+    }
+
+    // reads the layout of a store, treating any cell that is not a wall as open, and finds its endpoints
+    public PathQuery(CellStore cells) {
+        this(cells, MazeTopology.findEndpoints(cells));
+    }
+
+    private PathQuery(CellStore cells, int[] endpoints) {
+        this(cells, endpoints[0], endpoints[1], endpoints[2], endpoints[3]);
+    }
+
+    private PathQuery(CellStore cells, int startX, int startY, int endX, int endY) {
+        width = cells.getWidth();
+        height = cells.getHeight();
+        paddedWidth = width + 2;
+
+        long padded = (long) paddedWidth * (height + 2);
+        if (padded > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maze of " + width + "x" + height + " is too large to query");
+        }
+
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+
+        offsets = new int[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            offsets[direction.ordinal()] = direction.dy * paddedWidth + direction.dx;
+        }
+
+        open = new long[(int) ((padded + 63) >>> 6)];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (cells.get(x, y) != Maze.CELL_WALL) {
+                    int cell = pad(x, y);
+                    open[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+
+        graph = new JunctionGraph(cells);
+        startCell = graph.getStartNode() < 0 ? -1
+                : pad(graph.getNodeX(graph.getStartNode()), graph.getNodeY(graph.getStartNode()));
+        endCell = graph.getEndNode() < 0 ? -1
+                : pad(graph.getNodeX(graph.getEndNode()), graph.getNodeY(graph.getEndNode()));
+    }
+
+    // shares the layout of another query, with search arrays of its own, so it can be used on another thread
+    public PathQuery(PathQuery layout) {
+        width = layout.width;
+        height = layout.height;
+        paddedWidth = layout.paddedWidth;
+        open = layout.open;
+        offsets = layout.offsets;
+        graph = layout.graph;
+        startCell = layout.startCell;
+        endCell = layout.endCell;
+        startX = layout.startX;
+        startY = layout.startY;
+        endX = layout.endX;
+        endY = layout.endY;
+    }
+
+    // a shortest route between two cells, as every cell along it from the first to the last
+    public static final class Route {
+        // the width of the maze, and the cells of the route as y * width + x
+        private final int width;
+        private final int[] cells;
+
+        Route(int width, int[] cells) {
+            this.width = width;
+            this.cells = cells;
+        }
+
+        // returns the number of steps along the route, which is one less than the cells on it
+        public int getLength() { return cells.length - 1; }
+
+        // returns the position of a cell of the route, 0 being where it starts and getLength() where it ends
+        public int getX(int index) { return cells[index] % width; }
+        public int getY(int index) { return cells[index] / width; }
+
+        // returns the direction of a step of the route, from cell index to cell index + 1
+        public Direction getDirection(int index) {
+            int step = cells[index + 1] - cells[index];
+            if (step == width) return Direction.SOUTH;
+            if (step == -width) return Direction.NORTH;
+            return step > 0 ? Direction.EAST : Direction.WEST;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getX(0) + ", " + getY(0) + ") to (" + getX(cells.length - 1) + ", " + getY(cells.length - 1)
+                    + ") in " + getLength() + " steps";
+        }
+    }
+
+    // returns a shortest route from the start of the maze to a cell, or null if there is none
+    //  - throws IllegalStateException if the maze has no start
+    public Route fromStart(int x, int y, Algorithm algorithm) {
+        if (startX < 0) throw new IllegalStateException("the maze has no start");
+
+        return find(startX, startY, x, y, algorithm);
+    }
+
+    // returns a shortest route from a cell to the end of the maze, or null if there is none
+    //  - throws IllegalStateException if the maze has no end
+    public Route toEnd(int x, int y, Algorithm algorithm) {
+        if (endX < 0) throw new IllegalStateException("the maze has no end");
+
+        return find(x, y, endX, endY, algorithm);
+    }
+
+    // returns a shortest route between two cells, or null if either is a wall or there is no way between them
+    //  - throws IllegalArgumentException if either cell is outside of the maze
+    public Route find(int fromX, int fromY, int toX, int toY, Algorithm algorithm) {
+        checkCell(fromX, fromY);
+        checkCell(toX, toY);
+
+        int source = pad(fromX, fromY);
+        int target = pad(toX, toY);
+
+        expanded = 0;
+        if (!isOpen(source) || !isOpen(target)) return null;
+        if (source == target) return new Route(width, new int[] {unpad(source)});
+
+        return algorithm == Algorithm.JUMP_POINT ? jumpPoint(source, target) : bidirectional(source, target);
+    }
+
+    // returns the number of cells the last query expanded, which is how much work it did
+    public long getExpanded() { return expanded; }
+
+    // searches from both ends, a level at a time, and joins the two halves of the best route found
+    private Route bidirectional(int source, int target) {
+        int[] forward = forwardStamps();
+        int[] backward = backwardStamps();
+
+        forwardQueue.clear();
+        backwardQueue.clear();
+        forward[source] = base;
+        backward[target] = base;
+        forwardQueue.add(source);
+        backwardQueue.add(target);
+
+        // the depth of each side's frontier, and the best route through an edge between the two sides so far
+        int forwardDepth = 0, backwardDepth = 0;
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1, meetTo = -1;
+
+        // no route not found yet can be shorter than the two frontiers put together
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty() && forwardDepth + backwardDepth < best) {
+            boolean growForward = forwardQueue.size() <= backwardQueue.size();
+            IntQueue queue = growForward ? forwardQueue : backwardQueue;
+            int[] own = growForward ? forward : backward;
+            int[] other = growForward ? backward : forward;
+            byte[] search = growForward ? forwardSearch : backwardSearch;
+
+            for (int remaining = queue.size(); remaining > 0; remaining--) {
+                int cell = queue.remove();
+                int distance = own[cell] - base;
+                expanded++;
+
+                for (int d = 0; d < 4; d++) {
+                    int next = cell + offsets[d];
+                    if (!isOpen(next)) continue;
+
+                    // an edge over to the other side is a whole route
+                    if (other[next] >= base && distance + 1 + other[next] - base < best) {
+                        best = distance + 1 + other[next] - base;
+                        meetFrom = growForward ? cell : next;
+                        meetTo = growForward ? next : cell;
+                    }
+
+                    if (own[next] < base) {
+                        own[next] = base + distance + 1;
+                        search[next] = (byte) d;
+                        queue.add(next);
+                    }
+                }
+            }
+
+            if (growForward) {
+                forwardDepth++;
+            } else {
+                backwardDepth++;
+            }
+        }
+
+        finishQuery(Math.max(forwardDepth, backwardDepth) + 1);
+        if (meetFrom < 0) return null;
+
+        // walk each half back to its own end, the first half into the front of the route and the second into the back
+        int[] route = new int[best + 1];
+        int index = forward[meetFrom] - base;
+        for (int cell = meetFrom; index >= 0; index--) {
+            route[index] = unpad(cell);
+            if (index > 0) cell -= offsets[forwardSearch[cell]];
+        }
+
+        index = forward[meetFrom] - base + 1;
+        for (int cell = meetTo; index < route.length; index++) {
+            route[index] = unpad(cell);
+            if (index < route.length - 1) cell -= offsets[backwardSearch[cell]];
+        }
+
+        return new Route(width, route);
+    }
+
+    // runs A* between the cells where there is a choice to make, jumping down the corridors in between
+    private Route jumpPoint(int source, int target) {
+        int[] stamps = forwardStamps();
+        byte[] search = forwardSearch;
+
+        int targetX = target % paddedWidth, targetY = target / paddedWidth;
+        heap.clear();
+
+        walkedSlotCount = 0;
+        addWalkedSlots(source);
+        addWalkedSlots(target);
+
+        stamps[source] = base;
+        search[source] = 0;
+        heap.add(entry(heuristic(source, targetX, targetY), source));
+        int furthest = 0;
+
+        while (!heap.isEmpty()) {
+            long entry = heap.remove();
+            int cell = (int) (entry & CELL_MASK);
+            int travelled = (int) (entry >>> ESTIMATE_SHIFT) - heuristic(cell, targetX, targetY);
+
+            // a cell can be queued more than once, and only its best entry counts
+            if ((search[cell] & CLOSED) != 0 || travelled != stamps[cell] - base) continue;
+
+            search[cell] |= CLOSED;
+            expanded++;
+            if (cell == target) break;
+
+            // the way back down the corridor that led here only leads back to where it came from
+            int back = cell == source ? -1 : DIRECTIONS[search[cell] & 3].opposite().ordinal();
+            int graphNode = graph.nodeAt(cell % paddedWidth - 1, cell / paddedWidth - 1);
+
+            for (int d = 0; d < 4; d++) {
+                if (d == back || !isOpen(cell + offsets[d])) continue;
+
+                int node;
+                if (graphNode >= 0 && !isWalked(graphNode * 4 + d)) {
+                    int next = graph.getTarget(graphNode, DIRECTIONS[d]);
+                    node = pad(graph.getNodeX(next), graph.getNodeY(next));
+                    jumpLength = graph.getLength(graphNode, DIRECTIONS[d]);
+                    jumpArrival = graph.getArrival(graphNode, DIRECTIONS[d]).ordinal();
+                } else {
+                    node = jump(cell, d, source, target);
+                }
+
+                // a corridor into a dead end is no use unless the target is at the end of it
+                if (node != target && Integer.bitCount(exits(node)) == 1) continue;
+
+                int distance = travelled + jumpLength;
+                boolean reached = stamps[node] >= base;
+                if (reached && ((search[node] & CLOSED) != 0 || stamps[node] - base <= distance)) continue;
+
+                stamps[node] = base + distance;
+                search[node] = (byte) jumpArrival;
+                heap.add(entry(distance + heuristic(node, targetX, targetY), node));
+                furthest = Math.max(furthest, distance);
+            }
+        }
+
+        finishQuery(furthest + 1);
+        if (stamps[target] < base || (search[target] & CLOSED) == 0) return null;
+
+        // walk back down each corridor from the target, to the cell the jump down it started from
+        int[] route = new int[stamps[target] - base + 1];
+        int index = route.length - 1;
+        int cell = target;
+        route[index] = unpad(cell);
+
+        while (cell != source) {
+            int heading = DIRECTIONS[search[cell] & 3].opposite().ordinal();
+            do {
+                cell += offsets[heading];
+                route[--index] = unpad(cell);
+                heading = Integer.numberOfTrailingZeros(waysOn(cell, heading));
+            } while (stamps[cell] < base);
+        }
+
+        return new Route(width, route);
+    }
+
+    // walks a corridor from a cell in a direction to the next node of the graph, or to either end of the query, and
+    // returns it, leaving its distance in jumpLength and the direction it was reached in in jumpArrival
+    private int jump(int from, int direction, int source, int target) {
+        int cell = from;
+        int length = 0;
+
+        while (true) {
+            cell += offsets[direction];
+            length++;
+
+            if (cell == target || cell == source || cell == startCell || cell == endCell) break;
+
+            // a corridor has exactly one way on other than the way back
+            int ways = waysOn(cell, direction);
+            if (Integer.bitCount(ways) != 1) break;
+
+            direction = Integer.numberOfTrailingZeros(ways);
+        }
+
+        jumpLength = length;
+        jumpArrival = direction;
+        return cell;
+    }
+
+    // adds the slots of the nodes at either end of the corridor a cell lies partway down, if it is not a node itself
+    private void addWalkedSlots(int cell) {
+        if (graph.nodeAt(cell % paddedWidth - 1, cell / paddedWidth - 1) >= 0) return;
+
+        for (int d = 0; d < 4; d++) {
+            if (!isOpen(cell + offsets[d])) continue;
+
+            // walk to the end of the corridor, unless it loops back around without one
+            int end = jump(cell, d, cell, cell);
+            if (end == cell) continue;
+
+            int node = graph.nodeAt(end % paddedWidth - 1, end / paddedWidth - 1);
+            walkedSlots[walkedSlotCount++] = node * 4 + DIRECTIONS[jumpArrival].opposite().ordinal();
+        }
+    }
+
+    // returns if an edge slot of the graph has to be walked rather than jumped
+    private boolean isWalked(int slot) {
+        for (int i = 0; i < walkedSlotCount; i++) {
+            if (walkedSlots[i] == slot) return true;
+        }
+
+        return false;
+    }
+
+    // returns a bit for each direction, by ordinal, that leads on out of a cell entered heading in the given
+    // direction, which is every open side but the way back
+    private int waysOn(int cell, int heading) {
+        return exits(cell) & ~(1 << DIRECTIONS[heading].opposite().ordinal());
+    }
+
+    // returns a bit for each direction, by ordinal, that there is an open cell beside a cell in
+    private int exits(int cell) {
+        int exits = 0;
+        for (int d = 0; d < 4; d++) {
+            if (isOpen(cell + offsets[d])) exits |= 1 << d;
+        }
+
+        return exits;
+    }
+
+    // returns the stamps of the search from the source, starting a new query
+    private int[] forwardStamps() {
+        startQuery();
+        return forwardStamps;
+    }
+
+    // returns the stamps of the search from the target
+    private int[] backwardStamps() {
+        if (backwardStamps == null) {
+            backwardStamps = new int[forwardStamps.length];
+            backwardSearch = new byte[forwardStamps.length];
+        }
+
+        return backwardStamps;
+    }
+
+    // picks a base above every stamp of the last query, clearing the stamps if there is no room left above them
+    private void startQuery() {
+        if (forwardStamps == null) {
+            forwardStamps = new int[open.length << 6];
+            forwardSearch = new byte[forwardStamps.length];
+        }
+
+        // a route is never longer than the number of cells, and A* can stamp up to twice that before it finds it
+        if (nextBase + 2L * forwardStamps.length > Integer.MAX_VALUE) {
+            Arrays.fill(forwardStamps, 0);
+            if (backwardStamps != null) Arrays.fill(backwardStamps, 0);
+            nextBase = 1;
+        }
+
+        base = nextBase;
+    }
+
+    // moves the next base past the stamps of the query just run, which reached up to the given distance
+    private void finishQuery(int distances) {
+        nextBase = base + distances + 1;
+    }
+
+    // returns if a padded cell is open
+    private boolean isOpen(int cell) {
+        return (open[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // returns the padded cell at a point of the maze, and the point of the maze at a padded cell
+    private int pad(int x, int y) { return (y + 1) * paddedWidth + x + 1; }
+
+    private int unpad(int cell) { return (cell / paddedWidth - 1) * width + cell % paddedWidth - 1; }
+
+    // returns the Manhattan distance from a padded cell to a point of the padded grid
+    private int heuristic(int cell, int targetX, int targetY) {
+        return Math.abs(cell % paddedWidth - targetX) + Math.abs(cell / paddedWidth - targetY);
+    }
+
+    // packs an estimate and a cell into an open entry
+    private static long entry(int estimate, int cell) {
+        return ((long) estimate << ESTIMATE_SHIFT) | cell;
+    }
+
+    private void checkCell(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("(" + x + ", " + y + ") is outside of the " + width + "x" + height
+                    + " maze");
+        }
+    }
+
+    // returns the width and height of the maze
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
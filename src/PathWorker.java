@@ -0,0 +1,196 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import javafx.application.Platform;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Solves a maze on a background thread so that the JavaFX Application Thread stays free to draw, handing what has
+    changed over to it as the solve goes on.
+
+    The worker gathers the changed cells in batches and adds them to a list that the FX thread takes from, along with
+    each cell's type and the way the actor faces, read on the worker's thread so that the FX thread never has to read
+    the maze while it is being solved. However many batches arrive before the FX thread gets around to them, only one
+    Platform.runLater is ever waiting at a time, and it takes everything that has built up. If the FX thread falls too
+    far behind, the list is dropped and the view is told to refresh everything once the solve has finished instead.
+
+    Nothing else may touch the maze until the worker is finished, and any step listeners that expect to be called on
+    the FX thread have to be taken off it first.
+
+    Given a SolutionCache, a maze that has not been started yet is looked for in it first, and only solved if it is
+    not there, in which case the finished solve is added to it.
+ */
+public class PathWorker implements StepBatch.BatchHandler {
+    // the number of steps between batches, and between checks for being cancelled
+    private static final int BATCH_STEPS = 4096;
+
+    // past this many waiting cells, the FX thread is told to refresh everything instead
+    private static final int MAX_PENDING = 1 << 20;
+
+    // the maze being solved, and what its changes are handed to
+    private final Maze maze;
+    private final Publisher publisher;
+
+    // where solutions are looked for and remembered, or null to always solve
+    private final SolutionCache cache;
+
+    // the thread doing the solving
+    private final Thread thread;
+
+    // whether the solve has been asked to stop
+    private volatile boolean cancelled;
+
+    // whether a publish is waiting to run on the FX thread
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+
+    // what the worker has handed over and the FX thread has not taken yet, guarded by the worker
+    //  - the cells are x, y and cell type triples
+    private int[] pendingCells = new int[1536];
+    private int pendingCount;
+    private boolean pendingOverflow;
+    private long steps;
+    private int actorX, actorY;
+    private Direction face;
+
+    // the list the FX thread takes the waiting cells into, so that it does not hold the lock while using them
+    private int[] publishedCells = new int[1536];
+
+    public PathWorker(Maze maze, Publisher publisher) {
+        this(maze, publisher, null);
+    }
+
+    public PathWorker(Maze maze, Publisher publisher, SolutionCache cache) {
+        this.maze = maze;
+        this.publisher = publisher;
+        this.cache = cache;
+
+        thread = new Thread(this::solve, "path-worker");
+        thread.setDaemon(true);
+    }
+
+    // starts solving
+    public void start() { thread.start(); }
+
+    // asks the solve to stop, which it does within a batch's worth of steps
+    public void cancel() { cancelled = true; }
+
+    // returns if the solve has been asked to stop
+    public boolean isCancelled() { return cancelled; }
+
+    private void solve() {
+        StepBatch batch = new StepBatch(BATCH_STEPS, this);
+        maze.addStepListener(batch);
+
+        try {
+            // only a solve from the very start is the same every time, so only that is looked for or remembered
+            boolean fresh = cache != null && !maze.isStarted();
+
+            if (!fresh || !cache.restore(maze)) {
+                while (!cancelled && !maze.isFinished()) {
+                    maze.stepN(BATCH_STEPS);
+                }
+
+                if (fresh && !cancelled) cache.store(maze);
+            }
+        } finally {
+            batch.flush(maze);
+            maze.removeStepListener(batch);
+
+            // the last publish always runs before the solve is reported finished
+            Platform.runLater(() -> {
+                publish();
+                publisher.finished(cancelled);
+            });
+        }
+    }
+
+    @Override
+    public void handle(Maze maze, StepBatch batch) {
+        synchronized (this) {
+            steps += batch.getSteps();
+            actorX = maze.getActorX();
+            actorY = maze.getActorY();
+            face = maze.getFace();
+
+            int count = batch.getDirtyCount();
+            if (!pendingOverflow && pendingCount + count > MAX_PENDING) {
+                pendingOverflow = true;
+                pendingCount = 0;
+            }
+
+            if (!pendingOverflow) {
+                if ((pendingCount + count) * 3 > pendingCells.length) {
+                    pendingCells = Arrays.copyOf(pendingCells, Math.max((pendingCount + count) * 3,
+                            pendingCells.length * 2));
+                }
+
+                for (int i = 0; i < count; i++) {
+                    int x = batch.getDirtyX(i);
+                    int y = batch.getDirtyY(i);
+
+                    pendingCells[pendingCount * 3] = x;
+                    pendingCells[pendingCount * 3 + 1] = y;
+                    pendingCells[pendingCount * 3 + 2] = maze.getCell(x, y);
+                    pendingCount++;
+                }
+            }
+        }
+
+        if (publishPending.compareAndSet(false, true)) Platform.runLater(this::publish);
+    }
+
+    // hands everything that has built up over to the publisher, on the FX thread
+    private void publish() {
+        publishPending.set(false);
+
+        int count;
+        boolean overflow;
+        long publishedSteps;
+        int publishedX, publishedY;
+        Direction publishedFace;
+
+        synchronized (this) {
+            count = pendingCount;
+            overflow = pendingOverflow;
+            publishedSteps = steps;
+            publishedX = actorX;
+            publishedY = actorY;
+            publishedFace = face;
+
+            if (publishedCells.length < count * 3) publishedCells = new int[pendingCells.length];
+            System.arraycopy(pendingCells, 0, publishedCells, 0, count * 3);
+
+            pendingCount = 0;
+            pendingOverflow = false;
+        }
+
+        if (overflow) {
+            publisher.allChanged();
+        } else {
+            for (int i = 0; i < count; i++) {
+                publisher.cellChanged(publishedCells[i * 3], publishedCells[i * 3 + 1], publishedCells[i * 3 + 2]);
+            }
+        }
+
+        // nothing has been handed over yet if the solve ended before its first batch
+        if (publishedFace != null) publisher.progress(publishedSteps, publishedX, publishedY, publishedFace);
+    }
+
+    // receives the solve's changes, always on the FX thread
+    public interface Publisher {
+        // a cell was marked, and is now the given type
+        void cellChanged(int x, int y, int cell);
+
+        // too much changed to list, and everything has to be looked at again once the solve has finished
+        void allChanged();
+
+        // the number of steps taken so far, and where the actor is and the way it faces
+        void progress(long steps, int actorX, int actorY, Direction face);
+
+        // the solve has ended, either by finishing or by being cancelled
+        void finished(boolean cancelled);
+    }
+}
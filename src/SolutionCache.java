@@ -0,0 +1,402 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    Remembers how mazes were solved, so that a maze that has been solved before can be put straight into its solved
+    state instead of being solved again. A solve is remembered by the layout of the maze's walls, its start and end,
+    and the solver that solved it, so any maze with the same layout finds it, however it was loaded.
+
+    A solution keeps the actor's history as two-bit directions, as ActorHistory does, along with every cell of the
+    trail, as gaps between marked cells written as variable-length numbers. Restoring one marks the trail and moves
+    the actor in a single go, costing as much as the trail is long rather than as much as the solve took.
+
+    The solutions are kept in memory up to a limit on their total size, letting go of the ones used longest ago first.
+    If a directory is given, every solution is also written there as a file of its own, and a solution that is not in
+    memory is looked for there before giving up, so solutions last from one run to the next. Anything that goes wrong
+    with the directory counts as a miss rather than an error, since the maze can always just be solved.
+
+    The cache can be shared between threads.
+ */
+public class SolutionCache {
+    // the start of every solution file, and the version of its layout
+    private static final int MAGIC = 0x4d5a534c;
+    private static final int VERSION = 1;
+
+    // a rough size of the objects around each solution's arrays, counted against the limit
+    private static final int ENTRY_OVERHEAD = 128;
+
+    // the solutions in memory, with the one used longest ago first
+    private final LinkedHashMap<Key, Solution> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // the most bytes of solutions kept in memory, and how many are kept now
+    private final long maxBytes;
+    private long bytes;
+
+    // where solutions are written to and looked for, or null to keep them in memory only
+    private final Path directory;
+
+    // the counters
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long diskErrors;
+
+    // keeps up to the given number of bytes of solutions in memory only
+    public SolutionCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    // keeps up to the given number of bytes of solutions in memory, and every solution in the given directory
+    public SolutionCache(long maxBytes, Path directory) {
+        if (maxBytes < 0) throw new IllegalArgumentException("cache size " + maxBytes + " is negative");
+
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    // what a solution is remembered by
+    private static final class Key {
+        private final long layout;
+        private final int startX, startY, endX, endY;
+        private final String solver;
+
+        Key(long layout, int startX, int startY, int endX, int endY, String solver) {
+            this.layout = layout;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.solver = solver;
+        }
+
+        // returns the name of the file the solution is kept in
+        String fileName() {
+            return String.format(Locale.ROOT, "%016x-%d-%d-%d-%d-%s.solution", layout, startX, startY, endX, endY,
+                    solver);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+
+            Key key = (Key) other;
+            return layout == key.layout && startX == key.startX && startY == key.startY && endX == key.endX
+                    && endY == key.endY && solver.equals(key.solver);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(layout) * 31 + solver.hashCode();
+        }
+    }
+
+    // a solved maze, which is never changed once it is made
+    private static final class Solution {
+        private final int width, height;
+        private final int actorX, actorY;
+        private final Direction face;
+        private final boolean complete, stuck;
+
+        // the actor's history, packed as ActorHistory packs it
+        private final int historySize;
+        private final long[] history;
+
+        // the trail: for each marked cell in order, the gap since the last one, shifted up a bit, with the low bit
+        // set if it is a bad path rather than a visited one, written seven bits to a byte, lowest first
+        private final byte[] trail;
+
+        Solution(int width, int height, int actorX, int actorY, Direction face, boolean complete, boolean stuck,
+                 int historySize, long[] history, byte[] trail) {
+            this.width = width;
+            this.height = height;
+            this.actorX = actorX;
+            this.actorY = actorY;
+            this.face = face;
+            this.complete = complete;
+            this.stuck = stuck;
+            this.historySize = historySize;
+            this.history = history;
+            this.trail = trail;
+        }
+
+        // returns the bytes the solution is counted as taking up
+        long size() { return ENTRY_OVERHEAD + history.length * 8L + trail.length; }
+    }
+
+    // puts a maze that has not been started into its solved state if the same maze has been solved before with the
+    // same kind of solver, without stepping
+    // returns false, leaving the maze alone, if the solution is not known or the maze has already been started
+    public boolean restore(Maze maze) {
+        if (maze.isStarted()) return false;
+
+        Key key = keyOf(maze);
+        Solution solution;
+
+        synchronized (this) {
+            solution = entries.get(key);
+            if (solution != null) hits++;
+        }
+
+        if (solution == null) {
+            solution = read(key);
+
+            synchronized (this) {
+                if (solution == null) {
+                    misses++;
+                    return false;
+                }
+
+                diskHits++;
+                put(key, solution);
+            }
+        }
+
+        if (solution.width != maze.getWidth() || solution.height != maze.getHeight()) return false;
+
+        // mark the trail, and then put the actor at the end of it
+        long cell = 0;
+        int at = 0;
+        while (at < solution.trail.length) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = solution.trail[at++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+
+            cell += value >>> 1;
+            maze.markCell((int) (cell % maze.getWidth()), (int) (cell / maze.getWidth()),
+                    (value & 1) != 0 ? Maze.CELL_BAD : Maze.CELL_VISITED);
+        }
+
+        maze.restoreSolve(solution.actorX, solution.actorY, solution.face, solution.history, solution.historySize,
+                solution.complete, solution.stuck);
+
+        return true;
+    }
+
+    // remembers how a maze was solved, if it was solved in full from its start
+    // returns false without remembering anything if the maze is not finished, or did not start from its start
+    public boolean store(Maze maze) {
+        if (!maze.isFinished() || maze.getStartX() < 0) return false;
+
+        HistoryView history = maze.getHistory();
+        if (history.size() > 0 && (history.getOriginX() != maze.getStartX()
+                || history.getOriginY() != maze.getStartY())) {
+            return false;
+        }
+
+        Key key = keyOf(maze);
+        Solution solution = new Solution(maze.getWidth(), maze.getHeight(), maze.getActorX(), maze.getActorY(),
+                maze.getFace(), maze.isComplete(), maze.isStuck(), history.size(), maze.copyHistoryWords(),
+                encodeTrail(maze));
+
+        synchronized (this) {
+            put(key, solution);
+        }
+
+        write(key, solution);
+        return true;
+    }
+
+    // returns what a maze's solution is remembered by
+    private static Key keyOf(Maze maze) {
+        MazeTopology topology = maze.getTopology() != null ? maze.getTopology() : new MazeTopology(maze.getCells());
+
+        return new Key(topology.getContentHash(), maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY(),
+                maze.getSolver().getClass().getSimpleName());
+    }
+
+    // writes out every marked cell of a maze in order
+    private static byte[] encodeTrail(Maze maze) {
+        TrailWriter writer = new TrailWriter(maze);
+
+        if (maze.getCells() instanceof OverlayCellStore) {
+            // an overlay knows which cells it has marked
+            ((OverlayCellStore) maze.getCells()).forEachMarked(writer::add);
+        } else {
+            for (int y = 0; y < maze.getHeight(); y++) {
+                for (int x = 0; x < maze.getWidth(); x++) {
+                    writer.add(x, y);
+                }
+            }
+        }
+
+        return Arrays.copyOf(writer.trail, writer.length);
+    }
+
+    // writes marked cells into a trail, which have to be handed over in order
+    private static final class TrailWriter {
+        private final Maze maze;
+
+        private byte[] trail = new byte[64];
+        private int length;
+        private long last;
+
+        TrailWriter(Maze maze) {
+            this.maze = maze;
+        }
+
+        // writes a cell if it is marked
+        void add(int x, int y) {
+            int cell = maze.getCell(x, y);
+            if (cell == Maze.CELL_WALL || cell == Maze.CELL_PATH) return;
+
+            long index = (long) y * maze.getWidth() + x;
+            long value = ((index - last) << 1) | (cell == Maze.CELL_BAD ? 1 : 0);
+            last = index;
+
+            // a gap of up to 63 bits and the mark fit in ten bytes
+            if (length + 10 > trail.length) trail = Arrays.copyOf(trail, trail.length * 2);
+
+            while ((value & ~0x7fL) != 0) {
+                trail[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            trail[length++] = (byte) value;
+        }
+    }
+
+    // adds a solution to memory and lets go of the ones used longest ago until the rest fit, while holding the lock
+    private void put(Key key, Solution solution) {
+        Solution replaced = entries.put(key, solution);
+        if (replaced != null) bytes -= replaced.size();
+        bytes += solution.size();
+
+        Iterator<Map.Entry<Key, Solution>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // reads a solution from the directory, or returns null if there is no directory or no solution in it
+    private Solution read(Key key) {
+        if (directory == null) return null;
+
+        try (InputStream file = Files.newInputStream(directory.resolve(key.fileName()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a solution file");
+
+            int width = in.readInt();
+            int height = in.readInt();
+            int actorX = in.readInt();
+            int actorY = in.readInt();
+            Direction face = Direction.values()[in.readByte()];
+            boolean complete = in.readBoolean();
+            boolean stuck = in.readBoolean();
+
+            int historySize = in.readInt();
+            long[] history = new long[in.readInt()];
+            for (int i = 0; i < history.length; i++) {
+                history[i] = in.readLong();
+            }
+
+            byte[] trail = new byte[in.readInt()];
+            in.readFully(trail);
+
+            return new Solution(width, height, actorX, actorY, face, complete, stuck, historySize, history, trail);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                diskErrors++;
+            }
+
+            return null;
+        }
+    }
+
+    // writes a solution to the directory, if there is one, replacing the file in one go so it is never seen half done
+    private void write(Key key, Solution solution) {
+        if (directory == null) return;
+
+        Path target = directory.resolve(key.fileName());
+        Path temporary = null;
+
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "solution", ".tmp");
+
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(solution.width);
+                out.writeInt(solution.height);
+                out.writeInt(solution.actorX);
+                out.writeInt(solution.actorY);
+                out.writeByte(solution.face.ordinal());
+                out.writeBoolean(solution.complete);
+                out.writeBoolean(solution.stuck);
+
+                out.writeInt(solution.historySize);
+                out.writeInt(solution.history.length);
+                for (long word : solution.history) {
+                    out.writeLong(word);
+                }
+
+                out.writeInt(solution.trail.length);
+                out.write(solution.trail);
+            }
+
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                diskErrors++;
+            }
+
+            try {
+                if (temporary != null) Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // already counted as an error
+            }
+        }
+    }
+
+    // forgets every solution in memory, leaving any in the directory alone
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    // returns the number of solutions found in memory, found in the directory, and not found at all
+    public synchronized long getHits() { return hits; }
+    public synchronized long getDiskHits() { return diskHits; }
+    public synchronized long getMisses() { return misses; }
+
+    // returns the number of solutions let go of to make room, and the number of times the directory failed
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getDiskErrors() { return diskErrors; }
+
+    // returns the number of solutions in memory, the bytes they are counted as taking up, and the most they can
+    public synchronized int getEntryCount() { return entries.size(); }
+    public synchronized long getBytes() { return bytes; }
+    public long getMaxBytes() { return maxBytes; }
+
+    @Override
+    public synchronized String toString() {
+        return "entries=" + entries.size() + " bytes=" + bytes + " hits=" + hits + " diskHits=" + diskHits
+                + " misses=" + misses + " evictions=" + evictions + " diskErrors=" + diskErrors;
+    }
+}
@@ -0,0 +1,94 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+import java.util.Arrays;
+
+/*
+    A step listener that gathers events up and hands them over every so many steps, along with the cells that changed
+    in the meantime, so that a view can update once per batch rather than once per event. Whatever is left over is
+    handed over when the solve finishes, or when flush() is called.
+
+    The changed cells are listed in the order they changed, and a cell that changes more than once is listed more than
+    once; the maze itself holds each cell's latest type.
+ */
+public class StepBatch implements StepListener {
+    // the number of steps in each batch
+    private final int batchSteps;
+
+    // what the batches are handed to
+    private final BatchHandler handler;
+
+    // what has happened in the batch so far
+    private int steps, moves, turns, modeChanges;
+
+    // the cells that changed, as x and y pairs
+    private int[] dirtyCells = new int[64];
+    private int dirtyCount;
+
+    public StepBatch(int batchSteps, BatchHandler handler) {
+        if (batchSteps < 1) {
+            throw new IllegalArgumentException("batches need at least one step, got " + batchSteps);
+        }
+
+        this.batchSteps = batchSteps;
+        this.handler = handler;
+    }
+
+    @Override
+    public void actorMoved(Maze maze, int fromX, int fromY, int toX, int toY) { moves++; }
+
+    @Override
+    public void actorTurned(Maze maze, Direction face) { turns++; }
+
+    @Override
+    public void modeChanged(Maze maze, AIMode mode) { modeChanges++; }
+
+    @Override
+    public void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) {
+        if (dirtyCount * 2 == dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCells.length * 2);
+        }
+
+        dirtyCells[dirtyCount * 2] = x;
+        dirtyCells[dirtyCount * 2 + 1] = y;
+        dirtyCount++;
+    }
+
+    @Override
+    public void stepTaken(Maze maze) {
+        if (++steps >= batchSteps) flush(maze);
+    }
+
+    @Override
+    public void solveFinished(Maze maze) { flush(maze); }
+
+    // hands over whatever has been gathered, if anything, and starts a new batch
+    public void flush(Maze maze) {
+        if (steps == 0 && moves == 0 && turns == 0 && modeChanges == 0 && dirtyCount == 0) return;
+
+        handler.handle(maze, this);
+
+        steps = 0;
+        moves = 0;
+        turns = 0;
+        modeChanges = 0;
+        dirtyCount = 0;
+    }
+
+    // returns what happened during the batch
+    public int getSteps() { return steps; }
+    public int getMoves() { return moves; }
+    public int getTurns() { return turns; }
+    public int getModeChanges() { return modeChanges; }
+
+    // returns the number of cells that changed during the batch, and the position of each one
+    public int getDirtyCount() { return dirtyCount; }
+    public int getDirtyX(int index) { return dirtyCells[index * 2]; }
+    public int getDirtyY(int index) { return dirtyCells[index * 2 + 1]; }
+
+    // receives the batches, which are only valid until the call returns
+    public interface BatchHandler {
+        void handle(Maze maze, StepBatch batch);
+    }
+}
@@ -0,0 +1,30 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    Hears about everything that happens to a maze as it is solved, so that views and counters can keep up with the
+    changes as they happen instead of rescanning the whole maze. Every method does nothing unless overridden.
+ */
+public interface StepListener {
+    // the first step of the solve is about to be taken
+    default void solveStarted(Maze maze) { }
+
+    // the actor moved from one cell to the next
+    default void actorMoved(Maze maze, int fromX, int fromY, int toX, int toY) { }
+
+    // the actor turned to face a new direction
+    default void actorTurned(Maze maze, Direction face) { }
+
+    // the actor switched between DEFAULT and RETRACE
+    default void modeChanged(Maze maze, AIMode mode) { }
+
+    // a cell was marked with a new type
+    default void cellChanged(Maze maze, int x, int y, int oldCell, int newCell) { }
+
+    // a step of the solver finished, after all of the other events it caused
+    default void stepTaken(Maze maze) { }
+
+    // the maze was completed, or the actor got stuck, and no more steps will be taken
+    default void solveFinished(Maze maze) { }
+}
@@ -0,0 +1,33 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The outcome of a batch of steps taken by Maze.stepN() or Maze.stepUntil().
+ */
+public class StepResult {
+    // the number of steps that were taken
+    private final int steps;
+
+    // whether the maze was complete, or the actor stuck, once the batch ended
+    private final boolean complete;
+    private final boolean stuck;
+
+    public StepResult(int steps, boolean complete, boolean stuck) {
+        this.steps = steps;
+        this.complete = complete;
+        this.stuck = stuck;
+    }
+
+    // returns the number of steps that were taken
+    public int getSteps() { return steps; }
+
+    // returns if the actor reached the end of the maze
+    public boolean isComplete() { return complete; }
+
+    // returns if the actor ran out of places to go without reaching the end
+    public boolean isStuck() { return stuck; }
+
+    // returns if no more steps can be taken
+    public boolean isFinished() { return complete || stuck; }
+}
@@ -2,12 +2,19 @@
 // by Alexandria Carlson and Christian Byrne
 // 11/29/2017
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class TestCLI {
-    public static void main(String[] args) {
-        // initial maze data
-        Maze maze = new Maze(new int[][] {
+    public static void main(String[] args) throws IOException {
+        // redraw only what changes between steps if asked to
+        boolean delta = args.length > 0 && args[0].equals("--delta");
+        if (delta) args = Arrays.copyOfRange(args, 1, args.length);
+
+        // initial maze data, or a maze file if one is given
+        Maze maze = args.length > 0 ? MazeFile.load(Paths.get(args[0])) : new Maze(new int[][] {
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,1,1,1,1,0,0,0,1,0,0,0,0,0,1,0,0,0,0,0,0,0,1,0,0,0,0},
@@ -26,6 +33,12 @@ public class TestCLI {
                 {0,0,1,1,1,1,1,1,1,0,0,0,0,0,0,0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0,0,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}});
 
+        if (delta) {
+            ConsoleRenderer renderer = new ConsoleRenderer(ConsoleRenderer.Mode.DELTA);
+            renderer.trackChanges(maze);
+            maze.setRenderer(renderer);
+        }
+
         // display the initial state of the maze
         maze.displayMaze();
 
@@ -39,7 +52,7 @@ public class TestCLI {
 
         // wait for user input, and then take a step
         Scanner scan = new Scanner(System.in);
-        while (!maze.isComplete() && !quit) {
+        while (!maze.isFinished() && !quit) {
             String x = scan.nextLine();
             if (x.equalsIgnoreCase("s")) maze.findExit();
             else if(x.equalsIgnoreCase("t")) maze.takeStep(true);
@@ -48,6 +61,7 @@ public class TestCLI {
         }
 
         if (maze.isComplete()) System.out.println("Maze is complete!");
+        else if (maze.isStuck()) System.out.println("Maze has no way out!");
         System.out.println("Bye!");
     }
 }
@@ -7,17 +7,75 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Slider;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 public class TestGUI extends Application {
     public final double SCENE_SCALE = 30.0;
+
+    // mazes with more cells than this are drawn onto a canvas rather than with a node per cell
+    public final int CANVAS_CELLS = 10000;
+
+    // the largest the window starts out, however big the maze is
+    public final double MAX_SCENE_WIDTH = 1200.0;
+    public final double MAX_SCENE_HEIGHT = 800.0;
+
+    // the most solutions kept in memory when Show Path is cached
+    public final long CACHE_BYTES = 64L << 20;
+
     @Override
-    public void start(Stage primaryStage) {
-        // initial maze data
-        Maze maze = new Maze(new int[][] {
+    public void start(Stage primaryStage) throws IOException, JMException {
+        // initial maze data, or a maze file if one is given
+        List<String> args = new ArrayList<>(getParameters().getRaw());
+
+        // draw onto a canvas if asked to, or if the maze is too big for a node per cell
+        boolean canvas = args.remove("--canvas");
+
+        // the number of agents to walk the maze alongside the actor, which need the canvas to be drawn
+        int agentCount = 0;
+        int agentsAt = args.indexOf("--agents");
+        if (agentsAt >= 0 && agentsAt + 1 < args.size()) {
+            agentCount = Integer.parseInt(args.get(agentsAt + 1));
+            args.subList(agentsAt, agentsAt + 2).clear();
+            canvas = true;
+        }
+
+        // a directory to remember Show Path's solutions in, so that showing the same maze again is instant
+        SolutionCache cache = null;
+        int cacheAt = args.indexOf("--cache");
+        if (cacheAt >= 0 && cacheAt + 1 < args.size()) {
+            cache = new SolutionCache(CACHE_BYTES, Paths.get(args.get(cacheAt + 1)));
+            args.subList(cacheAt, cacheAt + 2).clear();
+        }
+
+        // a file to record the solve's moves to once it finishes, or to play recorded moves back from
+        Path recordTo = null;
+        int recordAt = args.indexOf("--record");
+        if (recordAt >= 0 && recordAt + 1 < args.size()) {
+            recordTo = Paths.get(args.get(recordAt + 1));
+            args.subList(recordAt, recordAt + 2).clear();
+        }
+
+        MoveLog replayLog = null;
+        int replayAt = args.indexOf("--replay");
+        if (replayAt >= 0 && replayAt + 1 < args.size()) {
+            replayLog = MoveLog.load(Paths.get(args.get(replayAt + 1)));
+            args.subList(replayAt, replayAt + 2).clear();
+        }
+
+        Maze maze = !args.isEmpty() ? MazeFile.load(Paths.get(args.get(0))) : new Maze(new int[][] {
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,1,1,1,1,0,0,0,1,0,0,0,0,0,1,0,0,0,0,0,0,0,1,0,0,0,0},
@@ -36,6 +94,29 @@ public class TestGUI extends Application {
                 {0,0,1,1,1,1,1,1,1,0,0,0,0,0,0,0,1,1,1,1,1,1,1,1,1,1,1,1,1,1,0,0,0,0,0,0},
                 {0,0,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}});
 
+        // count what the solver does, and make the counts readable from JConsole or any other JMX client
+        MazeMetrics metrics = new MazeMetrics();
+        maze.addStepListener(metrics);
+        metrics.register(args.isEmpty() ? "sample" : args.get(0));
+
+        // record every move from the first, and save them once the solve is over, whichever way it was stepped
+        if (recordTo != null) {
+            MoveRecorder recorder = new MoveRecorder(maze);
+            Path file = recordTo;
+
+            maze.addStepListener(recorder);
+            maze.addStepListener(new StepListener() {
+                @Override
+                public void solveFinished(Maze maze) {
+                    try {
+                        recorder.finish(maze).save(file);
+                    } catch (IOException | IllegalStateException ex) {
+                        System.err.println("could not record the solve to " + file + ": " + ex.getMessage());
+                    }
+                }
+            });
+        }
+
         // the central pane that stores all elements of the window
         VBox vBox = new VBox(8);
         vBox.setAlignment(Pos.TOP_CENTER);
@@ -50,18 +131,62 @@ public class TestGUI extends Application {
         // the button that shows the path
         Button showButton = new Button("Show Path");
 
+        // the button that stops Show Path partway, and what shows how far it has gotten
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setDisable(true);
+        ProgressBar pathProgress = new ProgressBar(0.0);
+        Label stepsLabel = new Label("0 steps");
+
         // the checkbox that toggles whether the algorithm should autocomplete or not
         Label autopilotLabel = new Label("Autopilot: ");
         CheckBox autopilotButton = new CheckBox();
         autopilotButton.setSelected(false);
 
+        // the choice box that picks the strategy used to navigate the maze
+        Label solverLabel = new Label("Solver: ");
+        ChoiceBox<String> solverChoice = new ChoiceBox<>();
+        solverChoice.getItems().addAll("Wall Follower", "Junctions", "BFS", "A*", "Dead-End Fill", "Flow Field");
+        solverChoice.setValue("Wall Follower");
+
+        // the slider that sets how many steps a second the autopilot takes, from one up to a million
+        Label speedLabel = new Label("Speed: 5/s");
+        Slider speedSlider = new Slider(0.0, 6.0, Math.log10(5.0));
+        speedSlider.setPrefWidth(120.0);
+
         // adding all the UI elements to the control panel
-        controlBox.getChildren().addAll(stepButton, showButton, autopilotLabel, autopilotButton);
+        controlBox.getChildren().addAll(stepButton, showButton, cancelButton, pathProgress, stepsLabel,
+                autopilotLabel, autopilotButton, speedLabel, speedSlider, solverLabel, solverChoice);
+
+        // a replay can be stepped backwards and scrubbed to any move, and has no solver to pick
+        Button backButton = new Button("Step Back");
+        Slider seekSlider = new Slider(0.0, replayLog != null ? replayLog.getMoveCount() : 0.0, 0.0);
+        seekSlider.setPrefWidth(160.0);
+        if (replayLog != null) {
+            controlBox.getChildren().add(1, backButton);
+            controlBox.getChildren().add(seekSlider);
+            solverChoice.setDisable(true);
+        }
 
 
         // the pane that controls the operations of the underlying maze
-        MazePane mazePane = new MazePane(maze);
-        mazePane.setPrefSize(maze.getWidth()*SCENE_SCALE, maze.getHeight()*SCENE_SCALE);
+        if ((long) maze.getWidth() * maze.getHeight() > CANVAS_CELLS) canvas = true;
+        MazePane mazePane = new MazePane(maze, canvas ? MazePane.RenderMode.CANVAS : MazePane.RenderMode.NODES);
+        mazePane.setSolutionCache(cache);
+        if (replayLog != null) mazePane.setReplay(new MoveReplay(maze, replayLog));
+
+        // the agents are scattered the same way every run, and walk a copy of the maze's layout, since the actor marks
+        // the maze's own cells as it goes
+        if (agentCount > 0) {
+            AgentSimulation agents = new AgentSimulation(new MazeTopology(PackedCellStore.copyOf(maze.getCells()),
+                    maze.getStartX(), maze.getStartY(), maze.getEndX(), maze.getEndY()));
+            agents.addRandomAgents(agentCount, 1);
+            mazePane.setAgents(agents);
+        }
+
+        // big mazes start out shrunk to fit the window, and can be zoomed into from there
+        double sceneScale = Math.min(SCENE_SCALE, Math.min(MAX_SCENE_WIDTH / maze.getWidth(),
+                MAX_SCENE_HEIGHT / maze.getHeight()));
+        mazePane.setPrefSize(maze.getWidth()*sceneScale, maze.getHeight()*sceneScale);
 
         // adding the maze and control panes to the central pane
         vBox.getChildren().addAll(mazePane, controlBox);
@@ -78,9 +203,38 @@ public class TestGUI extends Application {
                 autopilotButton.setSelected(false);
             }
 
+            // there is no telling how long the solve will take, so the bar only shows that it is going
+            pathProgress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            cancelButton.setDisable(false);
+
+            // the solver cannot be swapped out from under the background solve
+            solverChoice.setDisable(true);
             mazePane.showPath();
         });
 
+        cancelButton.setOnAction(e -> mazePane.cancelPath());
+
+        backButton.setOnAction(e -> mazePane.stepBack());
+
+        seekSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            mazePane.seek(newValue.intValue());
+            stepsLabel.setText(mazePane.getReplay().getPosition() + " moves");
+        });
+
+        mazePane.setPathListener(new MazePane.PathListener() {
+            @Override
+            public void progress(long steps) {
+                stepsLabel.setText(steps + " steps");
+            }
+
+            @Override
+            public void finished(boolean cancelled) {
+                pathProgress.setProgress(cancelled ? 0.0 : 1.0);
+                cancelButton.setDisable(true);
+                solverChoice.setDisable(mazePane.getReplay() != null);
+            }
+        });
+
         // when the checkbox is toggled, have the maze complete the maze by itself
         autopilotButton.setOnAction(e -> {
             if (autopilotButton.isSelected()) {
@@ -90,8 +244,43 @@ public class TestGUI extends Application {
             }
         });
 
+        // the slider moves along powers of ten, so that both ends of the range are easy to pick
+        speedSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            double speed = Math.pow(10.0, newValue.doubleValue());
+            mazePane.setSpeed(speed);
+            speedLabel.setText("Speed: " + Math.round(speed) + "/s");
+        });
+
+        // swap the strategy used to navigate the maze, which carries on from wherever the actor is
+        solverChoice.setOnAction(e -> {
+            switch (solverChoice.getValue()) {
+                case "Junctions":
+                    maze.setSolver(new JunctionSolver());
+                    break;
+
+                case "BFS":
+                    maze.setSolver(new BfsSolver());
+                    break;
+
+                case "A*":
+                    maze.setSolver(new AStarSolver());
+                    break;
+
+                case "Dead-End Fill":
+                    maze.setSolver(new DeadEndFillSolver());
+                    break;
+
+                case "Flow Field":
+                    maze.setSolver(new FlowFieldSolver());
+                    break;
+
+                default:
+                    maze.setSolver(new WallFollowerSolver());
+            }
+        });
+
         // the scene of the window that contains all of the elements
-        Scene scene = new Scene(vBox, maze.getWidth()*SCENE_SCALE, maze.getHeight()*SCENE_SCALE + 40.0);
+        Scene scene = new Scene(vBox, maze.getWidth()*sceneScale, maze.getHeight()*sceneScale + 40.0);
 
         // sets the scene of the window, as well as its title, and shows itself
         primaryStage.setScene(scene);
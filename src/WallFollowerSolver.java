@@ -0,0 +1,19 @@
+// Maze Project
+// by Alexandria Carlson and Christian Byrne
+// 11/29/2017
+
+/*
+    The original navigation behaviour: the actor keeps its right hand on the wall, marking its trail as it goes, and
+    retraces its steps out of dead-ends. The walk itself lives in Maze, as it shares the actor's DEFAULT and RETRACE
+    modes with the rest of the class.
+ */
+public class WallFollowerSolver implements MazeSolver {
+    // the maze being navigated
+    private Maze maze;
+
+    @Override
+    public void init(Maze maze) { this.maze = maze; }
+
+    @Override
+    public boolean step() { return maze.followWall(); }
+}